@@ -3,7 +3,6 @@ package avorontsov.cells;
 import avorontsov.petridish.*;
 
 import java.util.Random;
-import javafx.scene.paint.Color;
 
 /**
  * Not really a creature, just a little pellet of food. No behaviors, exists to
@@ -13,6 +12,8 @@ import javafx.scene.paint.Color;
  */
 public class Agar extends Cell {
 
+	private static final CellBehaviorController BEHAVIORS = createBehaviors(); // shared by every Agar
+
 	/**
 	 * Agars are intended as a food unit worth 25 energy. They are yellow and cannot
 	 * move.
@@ -22,21 +23,33 @@ public class Agar extends Cell {
 	public Agar(PetriDish petri, Random rng, double x, double y, double xVelocity, double yVelocity, double mass) {
 		super(petri, rng, x, y, xVelocity, yVelocity, mass);
 		health = 0;
-		energy = 25;
-		color = Color.YELLOW;
+		setEnergy(25);
+		color = 0xFFFFFF00; // yellow
 		maxAge = -1; // can't die of old age
 		friction = 0; // cannot move
 		species = "Agar";
 		baseVisionRange = 0; // cannot see
 
-		CellBehaviorController behaviorSet = new CellBehaviorController();
-		behaviorSet.addBehavior(new Behavior("sleep", null, 1)); // does nothing
-		setBehaviorController(behaviorSet);
+		setBehaviorController(BEHAVIORS); // shared by every Agar
 
 		SUPPRESS_EVENT_PRINTING = true;
 
 	}
 
+	/**
+	 * Helper method to build the set of behaviors shared by every Agar. Called
+	 * once, when the class is loaded.
+	 * 
+	 * @return the locked behavior controller
+	 */
+	private static CellBehaviorController createBehaviors() {
+		CellBehaviorController behaviorSet = new CellBehaviorController();
+		behaviorSet.addBehavior(new Behavior("sleep", null, 1)); // does nothing
+		
+		behaviorSet.lock(); // shared from here on, so no more changes
+		return behaviorSet;
+	}
+
 	// agar requires no further customization
 
 }
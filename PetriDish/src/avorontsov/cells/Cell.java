@@ -4,9 +4,7 @@ import avorontsov.petridish.*;
 
 import java.util.ArrayList;
 import java.util.Random;
-import javafx.scene.shape.Circle;
-import javafx.scene.Node;
-import javafx.scene.paint.Color;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a single-celled organism inhabiting the petri dish environment.
@@ -27,29 +25,41 @@ import javafx.scene.paint.Color;
  * abstraction.
  * 
  * In general, all protected fields of this class should be set in the
- * constructor of any extending class, with the following exceptions: x, y,
- * xVelocity, yVelocity, rng, petri (exposed for ease of writing reproduction
- * methods) and radius (exposed for convenience of changing graphics appearance)
+ * constructor of any extending class, with the following exceptions: rng, petri
+ * (exposed for ease of writing reproduction methods) and radius (exposed for
+ * convenience of changing graphics appearance)
+ * 
+ * The position, velocity, mass and energy of the cell are not kept in the cell
+ * object, but in the petri dish's CellStore, and are reached through their
+ * getters and setters.
  * 
  * So children should set:
- * SUPPRESS_EVENT_PRINTING, health, energy, mass, color, friction,
+ * SUPPRESS_EVENT_PRINTING, health, energy (with setEnergy()), color, friction,
  * baseVisionRange, species, maxAge
  * 
  * Additionally, children should:
- * 1. In the constructor, customize and add a CellBehaviorController
+ * 1. In the constructor, add a CellBehaviorController - since a controller
+ * holds no per-cell information, a species should build and lock one
+ * controller once (e.g. in a static field) and give it to every member; per-cell
+ * state such as behavior cooldowns is kept by the Cell
  * 2. Optionally, override customizedCellBehaviors() - this is where any custom
  * behavior that is not encapsulated by a CellBehaviorController should be
  * implemented (generally, it should call super.customizedCellBehaviors())
  * 3. Optionally, override behaviorClone() - used to implement the "clone" behavior
  * 4. Optionally, override squish() - default behavior is to push away all
  * cells of the same species to avoid overlapping them
- * 5. Optionally, override getGraphic() - default behavior is to update the radius value, then generate a
- * circle of appropriate radius and color
+ * 5. Optionally, override refreshAppearance(), getShape() and getDrawnRadius() - default behavior is to
+ * update the radius value, and to be drawn as a circle of that radius in the cell's color
  * 6. Optionally, override getScaledVisionRange() to apply a customized vision
  * range calculation
  * 
+ * Any cells produced during an update (offspring, agars dropped at death) are
+ * added to the OffspringSink handed down by the petri dish, rather than
+ * returned, so that updating a cell allocates nothing it doesn't have to.
+ * 
  * Generally, children should AVOID: 1. Overriding any other methods of the Cell
- * class (especially update(), act(), kill(), and updatePhysics())
+ * class (especially sense(), enact(), finishUpdate(), act(), eat(),
+ * nibble(), kill(), and updatePhysics())
  * 
  * In any case, when overriding methods, a call to the superclass version of that
  * method is often warranted.
@@ -59,18 +69,20 @@ import javafx.scene.paint.Color;
 public abstract class Cell {
 
 	// utility
-	protected Random rng; // use the same Random object as the rest of the simulation
+	protected Random rng; // this cell's own random stream, split off the one it was created with
 	protected PetriDish petri; // a reference to the petri dish the cell lives in
-	private static long nextCellID = 1; // each cell is assigned a unique ID
+	private static final AtomicLong nextCellID = new AtomicLong(1); // each cell is assigned a unique ID; atomic
+																	// since cells may be born on several threads
 	public final long cellID;
 	protected boolean SUPPRESS_EVENT_PRINTING = true; // children of this class may choose to set this to true to
 														// prevent status messages from that species from printing
+	private static volatile boolean eventPrinting = true; // false silences the status messages of every species
 
-	// physical information
-	protected double x;
-	protected double y;
-	protected double xVelocity;
-	protected double yVelocity;
+	// physical information (position and velocity) lives in the petri dish's cell store, along with mass and energy
+	private CellStore store; // only changes when a cell born on a worker thread is placed in the dish
+	private int storeSlot = -1; // this cell's slot in the store, maintained by the store
+	private double previousX; // where the cell was when it started its last update, so that it can be drawn
+	private double previousY; // anywhere between its last two positions
 
 	// information related to the cell's status independent of its genetics
 	// for all cells
@@ -79,32 +91,38 @@ public abstract class Cell {
 
 	// varies based on cell type, protected fields
 	protected int health = 0;
-	protected double energy = 0;
-	protected int radius; // updated by the getGraphic method at the end of each simulation update
-	protected double mass; // used by the simulation for size comparisons - mass determines radius
+	protected int radius; // updated by the refreshAppearance method at the end of each simulation update, from the mass
 
 	// for cell behaviors
 	private double targetX;
 	private double targetY;
-	private CellMovementVector targetingVector;
+	private final CellMovementVector targetingVector = new CellMovementVector(0, 0);
+	private final ActionOrder nextOrder = new ActionOrder(); // filled in again by the behavior controller on every
+																// update
 	private CellBehaviorController behaviors; // defines the set of movement behaviors this cell has
-	private String currBehavior;
-	private ArrayList<BehaviorCooldown> behaviorCooldowns = new ArrayList<BehaviorCooldown>();
+	private BehaviorType currBehavior;
+	private long behaviorCooldowns = 0; // one bit for each behavior on cooldown, set and cleared by the petri dish's
+										// cooldown wheel
+
+	// bookkeeping for the petri dish's spatial index, maintained by the PetriDish
+	private int dishIndex = -1; // the position of this cell in the petri dish's list of cells
+	private int gridBucket = -1; // the spatial grid bucket this cell is filed under, -1 when not filed
 
 	// 'genetic' information (to be replaced with a more permanent data structure)
-	protected Color color;
+	protected int color; // as 0xAARRGGBB
 	protected int maxAge;
 	protected double friction; // multiplicative coefficient for the velocity at each tick (smaller = more)
 	protected double baseVisionRange; // base distance the cell can see (radius of a circle around its center)
 										// hypothetically when the mass is zero (in reality, always more)
 	protected String species;
+	private int speciesID = -1; // looked up from the species the first time it is needed
 
 	/**
 	 * Constructor for basic physical properties. Cells are also assigned a unique
 	 * ID, are alive by default, and start at an age of 0.
 	 * 
 	 * @param petri     the petri dish the cell will inhabit
-	 * @param rng       the Random object used by this cell's randomized behavior
+	 * @param rng       the random stream this cell's own stream is split off
 	 * @param x         the x location to put the cell at
 	 * @param y         the y location to put the cell at
 	 * @param xVelocity the initial x velocity of the cell
@@ -113,143 +131,170 @@ public abstract class Cell {
 	 */
 	public Cell(PetriDish petri, Random rng, double x, double y, double xVelocity, double yVelocity, double mass) {
 		this.petri = petri;
-		this.rng = rng;
-		this.x = x;
-		this.y = y;
-		this.xVelocity = xVelocity;
-		this.yVelocity = yVelocity;
-		this.mass = mass;
+		this.rng = SplitRandom.split(rng); // never shared, so the cell's luck is its own
+		store = petri.getCellStore();
+		store.allocate(this, x, y, xVelocity, yVelocity, mass); // energy starts at 0
+		previousX = x;
+		previousY = y;
 
 		// defaults
 		isAlive = true;
 		age = 0;
-		targetingVector = new CellMovementVector(0, 0);
-		currBehavior = "sleep";
+		currBehavior = BehaviorType.SLEEP;
 		maxAge = 3000;
 
-		cellID = nextCellID; // assign a unique ID to the cell object
-		nextCellID++;
+		cellID = nextCellID.getAndIncrement(); // assign a unique ID to the cell object
 	}
 
 	// core functionality methods
 
 	/**
-	 * Core method, representing the basic actions the cell can take each tick of
-	 * the simulation.
+	 * The first half of an update. The cell invokes its CellBehaviorController to
+	 * choose the action it will take this tick, and keeps the resulting order for
+	 * enact(). Nothing in the petri dish is changed, not even this cell, so many
+	 * cells may sense at once.
 	 * 
-	 * @param visibleCells a list of cells visible to this cell, based on the cell's
-	 *                     vision range
-	 * @return any offspring produced by this cell during this update
+	 * @param neighborhood the cells visible to this cell, based on the cell's
+	 *                     vision range, and the cells touching it
 	 */
-	public ArrayList<Cell> update(ArrayList<Cell> visibleCells, ArrayList<Cell> touchedCells) {
-		age++; // cells have an age of 0 after being created; but new cells are updated on the
-				// same cycle they are created, so they end the cycle at age 1.
+	public void sense(Neighborhood neighborhood) {
+		if (behaviors == null) {
+			throw new NullPointerException("Cell " + this + " does not have a movement controller!");
+		}
 		
-		ArrayList<Cell> newCells = new ArrayList<Cell>();
+		previousX = getX(); // the start of whatever movement this update brings
+		previousY = getY();
 
-		newCells.addAll(act(visibleCells)); // the cell invokes its CellBehaviorController to enact policies regarding
-											// movement, eating, and reproduction
+		// engage the behavior controller's encapsulated logic to choose an appropriate
+		// behavior to enforce this update
+		behaviors.getNextActionOrder(this, neighborhood, nextOrder);
+	}
 
-		newCells.addAll(customizedCellBehaviors(visibleCells, touchedCells)); // any behaviors not defined in the CellBehaviorController
-																// are enforced here by custom implementation
+	/**
+	 * The second part of an update. The cell carries out the order it chose in
+	 * sense(). Anything the order does to another cell goes through the petri
+	 * dish, which may hold it back until every cell has acted.
+	 * 
+	 * @param neighborhood the same neighborhood the cell sensed
+	 * @param offspring    collects any cells produced by this cell during this
+	 *                     update, for the petri dish to place afterwards
+	 */
+	public void enact(Neighborhood neighborhood, OffspringSink offspring) {
+		age++; // cells have an age of 0 after being created, and are first updated on the
+				// tick after they are placed, so they end that tick at age 1.
+
+		act(neighborhood, offspring); // the cell enacts the policies its CellBehaviorController chose regarding
+										// movement, eating, and reproduction
+	}
+
+	/**
+	 * The last part of an update. The cell goes through its customized behaviors,
+	 * checks whether it died of old age, and moves.
+	 * 
+	 * @param neighborhood the same neighborhood the cell sensed
+	 * @param offspring    collects any cells produced by this cell during this
+	 *                     update, for the petri dish to place afterwards
+	 */
+	public void finishUpdate(Neighborhood neighborhood, OffspringSink offspring) {
+		customizedCellBehaviors(neighborhood, offspring); // any behaviors not defined in the CellBehaviorController
+															// are enforced here by custom implementation
 
-		newCells.addAll(dieOfOldAge());
+		dieOfOldAge(offspring);
 		
 		updatePhysics(); // the cell moves according to physics
 		
-		// update any cooldowns that behaviors might have
-		for (int i=0; i<behaviorCooldowns.size(); i++) {
-			if (behaviorCooldowns.get(i).update()) { // for each behavior on cooldown, update it, and if it ran out - get rid of it
-				behaviorCooldowns.remove(i);
-				i--;
-			}
-		}
-
-		return newCells;
+		// cooldowns that behaviors might have are run out by the petri dish's cooldown wheel
 	}
 
 	/**
-	 * The cell invokes its CellBehaviorController to choose an action, and then
-	 * enforces it.
+	 * The cell enforces the action its CellBehaviorController chose in sense().
 	 * 
-	 * @param visibleCells a list of cells this cell can see based on its vision
-	 *                     range
-	 * @return a list of Cell offsprings, if any were produced by reproduction
+	 * @param neighborhood the cells this cell can see based on its vision range,
+	 *                     and the cells it is touching
+	 * @param offspring    collects any Cell offspring produced by reproduction
 	 */
-	public ArrayList<Cell> act(ArrayList<Cell> visibleCells) {
-		if (behaviors == null) {
-			throw new NullPointerException("Cell " + this + " does not have a movement controller!");
-		}
+	public void act(Neighborhood neighborhood, OffspringSink offspring) {
 
-		ArrayList<Cell> children = new ArrayList<Cell>(); // prepare to reproduce
-
-		// engage the behavior controller's encapsulated logic to choose an appropriate
-		// behavior to enforce this update
-		ActionOrder nextOrder = behaviors.getNextActionOrder(this, visibleCells);
-
-		// update the cell's current behavior String to keep track of what it chose to
+		// update the cell's current behavior type to keep track of what it chose to
 		// do
 		currBehavior = nextOrder.getSourceBehavior().getBehaviorType();
 
+		switch (currBehavior.getCategory()) {
+
 		// for movement behaviors, we adjust the cell's target information and its
 		// velocity
-		if (nextOrder.getSourceBehavior().getBehaviorCategory().equals("MOVE")) {
+		case MOVE:
 
 			// get the vector leading to our next target
-			targetingVector = nextOrder.getVector();
+			targetingVector.set(nextOrder.getVector());
 
 			// update our target coordinates
-			targetX = targetingVector.getXComponent() + x;
-			targetY = targetingVector.getYComponent() + y;
+			targetX = targetingVector.getXComponent() + getX();
+			targetY = targetingVector.getYComponent() + getY();
 
 			// adjust our velocity by the appropriate amount
-			xVelocity += targetingVector.getUnitVector().getXComponent() * nextOrder.getVectorScalar();
-			yVelocity += targetingVector.getUnitVector().getYComponent() * nextOrder.getVectorScalar();
-
-		}
+			store.setXVelocity(storeSlot, getXVelocity()
+					+ targetingVector.getUnitXComponent() * nextOrder.getVectorScalar());
+			store.setYVelocity(storeSlot, getYVelocity()
+					+ targetingVector.getUnitYComponent() * nextOrder.getVectorScalar());
+			break;
 
 		// for eating/energy gain behaviors, we currently enforce the following:
 		// "eat" - kill the target, take all of its energy and burn its mass for energy
 		// "nibble" - for Plants - chew on the target, leeching some energy
-		if (nextOrder.getSourceBehavior().getBehaviorCategory().equals("EAT")) {
-			if (nextOrder.getSourceBehavior().getBehaviorType().equals("eat")) {
-				energy += nextOrder.getTarget().getEnergy();
-				energy += nextOrder.getTarget().getMass() / 12; // TODO efficiency of mass conversion gene
-				nextOrder.getTarget().kill("eaten");
-				if (!SUPPRESS_EVENT_PRINTING)
-					System.out.println(this + " consumed " + nextOrder.getTarget() + ", receiving "
-							+ (nextOrder.getTarget().getEnergy() + nextOrder.getTarget().getMass() / 12) + " energy.");
-			}
-			
-			if (nextOrder.getSourceBehavior().getBehaviorType().equals("nibble")) {
-				energy += 8;
-				nextOrder.getTarget().setEnergy(nextOrder.getTarget().getEnergy() - 8);
-				if (!SUPPRESS_EVENT_PRINTING)
-					System.out.println(this + " nibbled on " + nextOrder.getTarget() + ", receiving 8 energy.");
-			}
-		}
+		case EAT:
+			// both change the target as well, so the petri dish decides when (and if) the meal happens
+			petri.requestMeal(this, nextOrder.getTarget(), currBehavior);
+			break;
 
 		// for reproduction behaviors, we currently enforce the following:
 		// "clone" - produce a new instance of this cell
-		if (nextOrder.getSourceBehavior().getBehaviorCategory().equals("REPRODUCE")) {
-			if (nextOrder.getSourceBehavior().getBehaviorType().equals("clone")) {
-					children = behaviorClone();
-					if (!SUPPRESS_EVENT_PRINTING)
-						System.out.println(this + " spawned " + children + ".");
+		case REPRODUCE:
+			if (currBehavior == BehaviorType.CLONE) {
+					int before = offspring.size();
+					behaviorClone(offspring);
+					if (printsEvents())
+						System.out.println(this + " spawned " + offspring.since(before) + ".");
 			}
-
+			break;
 		}
 		
 		// set the action order's source behavior's cooldown, if applicable
-		if (nextOrder.getSourceBehavior().getCoolDown() != 0) {
-			behaviorCooldowns.add(new BehaviorCooldown(nextOrder.getSourceBehavior()));
+		if (nextOrder.getSourceBehavior().getCoolDown() > 0) {
+			petri.getCooldownWheel().schedule(this, nextOrder.getSourceBehavior().getCoolDownBit(),
+					nextOrder.getSourceBehavior().getCoolDown());
 		}
 
 		// apply the energy cost of the action order
-		energy -= nextOrder.getSourceBehavior().getEnergyCost();
+		setEnergy(getEnergy() - nextOrder.getSourceBehavior().getEnergyCost());
+	}
 
-		return children; // null, unless initialized by reproduction
+	/**
+	 * Kills the target, taking all of its energy and burning its mass for energy.
+	 * Called by the petri dish to carry out an "eat" order.
+	 * 
+	 * @param target the cell to eat
+	 */
+	public void eat(Cell target) {
+		setEnergy(getEnergy() + target.getEnergy());
+		setEnergy(getEnergy() + target.getMass() / 12); // TODO efficiency of mass conversion gene
+		target.kill("eaten");
+		if (printsEvents())
+			System.out.println(this + " consumed " + target + ", receiving "
+					+ (target.getEnergy() + target.getMass() / 12) + " energy.");
+	}
 
+	/**
+	 * Chews on the target, leeching some of its energy. Called by the petri dish
+	 * to carry out a "nibble" order.
+	 * 
+	 * @param target the cell to nibble on
+	 */
+	public void nibble(Cell target) {
+		setEnergy(getEnergy() + 8);
+		target.setEnergy(target.getEnergy() - 8);
+		if (printsEvents())
+			System.out.println(this + " nibbled on " + target + ", receiving 8 energy.");
 	}
 
 	/**
@@ -257,36 +302,31 @@ public abstract class Cell {
 	 * abstractly described by its configuration of its CellBehaviorController can
 	 * be implemented here. Ideally, overriding methods should have their contents
 	 * wrapped into clearly named helper methods and be as simple as possible. The
-	 * Cell update() method provides this method with the visibleCells and
-	 * touchedCells lists.
+	 * Cell finishUpdate() method provides this method with the cell's Neighborhood,
+	 * holding the visibleCells and touchedCells lists.
 	 * 
-	 * Default behavior is to call squish(), which may be overriden separately, to
-	 * prevent this cell from overlapping any cells of its own species; and also to
-	 * check whether the cell died of starvation (energy <= 0). These behaviors may
-	 * be disabled in custom cells.
+	 * Default behavior is to have the petri dish call squish(), which may be
+	 * overriden separately, to prevent this cell from overlapping any cells of its
+	 * own species; and also to check whether the cell died of starvation (energy
+	 * <= 0). These behaviors may be disabled in custom cells.
 	 * 
-	 * @param visibleCells a list of Cells this cell can see
-	 * @param touchedCells a list of Cells this cell is touching
-	 * 
-	 * @return any cells that are produced as a result of customized reproduction code etc, by default cells drop agars when they die for reasons other than being eaten
+	 * @param neighborhood the Cells this cell can see and the Cells it is touching
+	 * @param offspring    collects any cells that are produced as a result of customized reproduction code etc, by default cells drop agars when they die for reasons other than being eaten
 	 */
-	public ArrayList<Cell> customizedCellBehaviors(ArrayList<Cell> visibleCells, ArrayList<Cell> touchedCells) {
-		ArrayList<Cell> droppedCells = new ArrayList<Cell>();
-		
-		if (age > 3 && mass > 35) { // anything too young or too small isn't allowed to push other things away
-			squish(touchedCells);
+	public void customizedCellBehaviors(Neighborhood neighborhood, OffspringSink offspring) {
+		if (age > 3 && getMass() > 35) { // anything too young or too small isn't allowed to push other things away
+			petri.requestSquish(this, neighborhood.getTouchedCells());
 		}
-		if (energy <= 0) { // the cell checks itself for death by starvation
+		if (getEnergy() <= 0) { // the cell checks itself for death by starvation
 			kill("starvation");
-			while (mass > 0) {
-				mass -= 40;
-				Agar droppedEnergy = new Agar(petri, rng, x + (rng.nextDouble() * 4 - 2), y + (rng.nextDouble() * 4 - 2), 0, 0, 20);
+			while (getMass() > 0) {
+				setMass(getMass() - 40);
+				Agar droppedEnergy = new Agar(petri, rng, getX() + (rng.nextDouble() * 4 - 2), getY() + (rng.nextDouble() * 4 - 2), 0, 0, 20);
 				droppedEnergy.setEnergy(10);
-				droppedCells.add(droppedEnergy); // drop at least one agar
+				offspring.add(droppedEnergy); // drop at least one agar
 				
 			}
 		}
-		return droppedCells;
 	}
 	
 	/**
@@ -300,33 +340,28 @@ public abstract class Cell {
 	 * behavior, we really didn't accomplish anything by making the steps to its
 	 * activation that much more convoluted.
 	 * 
-	 * @return any child cells, if produced
+	 * @param offspring collects any child cells, if produced
 	 */
-	protected ArrayList<Cell> behaviorClone() {
-		return null;
+	protected void behaviorClone(OffspringSink offspring) {
 	}
 	
 
 	/**
 	 * Private. No need to override or even mention, cells can configure or turn off their max age easily.
 	 * 
-	 * @return a list of cells that are dropped at death
+	 * @param offspring collects the cells that are dropped at death
 	 */
-	private ArrayList<Cell> dieOfOldAge() {
-		ArrayList<Cell> droppedCells = new ArrayList<Cell>();
-
+	private void dieOfOldAge(OffspringSink offspring) {
 		if (maxAge != -1 && age > maxAge && rng.nextInt(100) < 6) {
 			kill("old age");
-			while (mass > 0) {
-				mass -= 40;
-				Agar droppedEnergy = new Agar(petri, rng, x + (rng.nextDouble() * 4 - 2), y  + (rng.nextDouble() * 4 - 2), 0, 0, 20);
+			while (getMass() > 0) {
+				setMass(getMass() - 40);
+				Agar droppedEnergy = new Agar(petri, rng, getX() + (rng.nextDouble() * 4 - 2), getY()  + (rng.nextDouble() * 4 - 2), 0, 0, 20);
 				droppedEnergy.setEnergy(10);
-				droppedCells.add(droppedEnergy); // drop at least one agar
+				offspring.add(droppedEnergy); // drop at least one agar
 				
 			}
 		}
-		
-		return droppedCells;
 	}
 
 	/**
@@ -339,7 +374,7 @@ public abstract class Cell {
 
 		isAlive = false;
 
-		if (!SUPPRESS_EVENT_PRINTING) {
+		if (printsEvents()) {
 			switch (reason) {
 			case "starvation":
 				System.out.println(this + " starved at age " + age + ".");
@@ -364,6 +399,12 @@ public abstract class Cell {
 	 */
 	public void updatePhysics() {
 
+		// work on local copies, and write them back to the store at the end
+		double x = getX();
+		double y = getY();
+		double xVelocity = getXVelocity();
+		double yVelocity = getYVelocity();
+
 		// update velocity due to friction
 		xVelocity = xVelocity * friction;
 		yVelocity = yVelocity * friction;
@@ -387,6 +428,13 @@ public abstract class Cell {
 			yVelocity = -1;
 			y = petri.getSimulationHeight() - 15;
 		}
+
+		store.setX(storeSlot, x);
+		store.setY(storeSlot, y);
+		store.setXVelocity(storeSlot, xVelocity);
+		store.setYVelocity(storeSlot, yVelocity);
+
+		petri.updateSpatialIndex(this); // let the petri dish know where we ended up
 	}
 
 	/**
@@ -397,41 +445,57 @@ public abstract class Cell {
 	 */
 	public void squish(ArrayList<Cell> touchedCells) {
 		for (Cell c : touchedCells) {
-			if (c.getSpecies().equals(species)) {
+			if (c.getSpeciesID() == getSpeciesID()) {
 				// get the unit vector along which to push, then scale it so that the magnitude
-				// is equal to the sum of the radii of the cells
-				CellMovementVector pushUnit = getVectorToTarget(c.getX(), c.getY()).getUnitVector();
+				// is equal to the sum of the radii of the cells (worked out component by
+				// component, no vector objects needed)
+				double pushX = c.getX() - getX();
+				double pushY = c.getY() - getY();
+				double distance = Math.sqrt(pushX * pushX + pushY * pushY);
 				double pushMagnitude = c.getRadius() + radius;
-				CellMovementVector push = new CellMovementVector(pushUnit.getXComponent() * pushMagnitude,
-						pushUnit.getYComponent() * pushMagnitude);
+				pushX = pushX / distance * pushMagnitude;
+				pushY = pushY / distance * pushMagnitude;
 				// use the scaled vector to place the other cell at the appropriate distance,
 				// plus a tiny margin
-				c.setX(x + 1.05 * push.getXComponent());
-				c.setY(y + 1.05 * push.getYComponent());
+				c.setX(getX() + 1.05 * pushX);
+				c.setY(getY() + 1.05 * pushY);
 			}
 		}
 	}
 
 	/**
-	 * This method should be overriden by any extending class that wants to
-	 * customize its graphic. By default, the graphic is a circle with the cell's
-	 * radius and color.
+	 * Called by the petri dish at the end of every update, just before the cell
+	 * is drawn into a frame. This method should be overriden by any extending
+	 * class that keeps measurements of its own for its appearance.
 	 * 
 	 * This method is responsible for updating the radius from the mass using
 	 * A = pi*r^2, where mass is taken to be area (they are proportionate).
-	 * Any overriding methods should include the statement
-	 * radius = (int) Math.round(Math.sqrt(mass/Math.PI));
-	 * Which should be safe as long as cell radii are reasonably small.
+	 * Any overriding methods should call super.refreshAppearance(), which
+	 * should be safe as long as cell radii are reasonably small.
+	 */
+	public void refreshAppearance() {
+		radius = (int) Math.round(Math.sqrt(getMass()/Math.PI));
+	}
+
+	/**
+	 * This method may be overriden by any extending class that wants a different
+	 * shape. By default, cells are circles.
 	 * 
-	 * @return any kind of Graphics object that can represent the cell (typically a
-	 *         JavaFX Circle or Square)
+	 * @return the shape the cell is drawn as
 	 */
-	public Node getGraphic() {
-		radius = (int) Math.round(Math.sqrt(mass/Math.PI));
-		
-		Circle graphic = new Circle(x, y, radius);
-		graphic.setFill(color);
-		return graphic;
+	public CellShape getShape() {
+		return CellShape.CIRCLE;
+	}
+
+	/**
+	 * This method may be overriden by any extending class whose shape isn't
+	 * sized by its radius. By default, this is the cell's radius.
+	 * 
+	 * @return the radius of the circle the cell is drawn as, or half the side of
+	 *         its square
+	 */
+	public double getDrawnRadius() {
+		return radius;
 	}
 
 	/**
@@ -444,7 +508,21 @@ public abstract class Cell {
 	 *         target
 	 */
 	public CellMovementVector getVectorToTarget(double targetX, double targetY) {
-		return new CellMovementVector(targetX - x, targetY - y);
+		return new CellMovementVector(targetX - getX(), targetY - getY());
+	}
+
+	/**
+	 * Same as getVectorToTarget(double, double), but fills in a vector the caller
+	 * already has instead of creating a new one.
+	 * 
+	 * @param targetX the location to target
+	 * @param targetY the location to target
+	 * @param vector  the vector to fill in
+	 * @return the same vector, now the movement vector from this cell to the
+	 *         target
+	 */
+	public CellMovementVector getVectorToTarget(double targetX, double targetY, CellMovementVector vector) {
+		return vector.set(targetX - getX(), targetY - getY());
 	}
 
 	/**
@@ -456,7 +534,7 @@ public abstract class Cell {
 	public double getScaledVisionRange() {
 		if (!canSee())
 			return 0;
-		return baseVisionRange + mass / 3.5;
+		return baseVisionRange + getMass() / 3.5;
 	}
 
 	/**
@@ -476,7 +554,22 @@ public abstract class Cell {
 	}
 
 	/**
-	 * @return the Random object used by the simulation
+	 * @return the x position of this cell when it started its last update
+	 */
+	public double getPreviousX() {
+		return previousX;
+	}
+
+	/**
+	 * @return the y position of this cell when it started its last update
+	 */
+	public double getPreviousY() {
+		return previousY;
+	}
+
+	/**
+	 * @return this cell's own random stream, only to be used while this cell is
+	 *         being updated
 	 */
 	public Random getRNG() {
 		return rng;
@@ -486,28 +579,28 @@ public abstract class Cell {
 	 * @return the x position of the cell
 	 */
 	public double getX() {
-		return x;
+		return store.getX(storeSlot);
 	}
 
 	/**
 	 * @return the y position of the cell
 	 */
 	public double getY() {
-		return y;
+		return store.getY(storeSlot);
 	}
 
 	/**
 	 * @return the xVelocity of the cell
 	 */
 	public double getXVelocity() {
-		return xVelocity;
+		return store.getXVelocity(storeSlot);
 	}
 
 	/**
 	 * @return the yVelocity of the cell
 	 */
 	public double getYVelocity() {
-		return yVelocity;
+		return store.getYVelocity(storeSlot);
 	}
 
 	/**
@@ -535,7 +628,7 @@ public abstract class Cell {
 	 * @return the energy
 	 */
 	public double getEnergy() {
-		return energy;
+		return store.getEnergy(storeSlot);
 	}
 
 	/**
@@ -549,7 +642,7 @@ public abstract class Cell {
 	 * @return the mass
 	 */
 	public double getMass() {
-		return mass;
+		return store.getMass(storeSlot);
 	}
 
 	/**
@@ -581,24 +674,84 @@ public abstract class Cell {
 	}
 
 	/**
-	 * @return the behaviorCooldowns
+	 * @param behavior one of the behaviors of this cell
+	 * @return true only if the behavior is on cooldown, and can't be used yet
+	 */
+	public boolean isOnCooldown(Behavior behavior) {
+		return behavior.getCoolDownBit() != -1 && (behaviorCooldowns & (1L << behavior.getCoolDownBit())) != 0;
+	}
+
+	/**
+	 * Used by the CooldownWheel to mark a behavior as on cooldown.
+	 * 
+	 * @param coolDownBit the cooldown bit of the behavior
+	 */
+	public void startCooldown(int coolDownBit) {
+		behaviorCooldowns |= 1L << coolDownBit;
+	}
+
+	/**
+	 * Used by the CooldownWheel to mark a behavior as usable again.
+	 * 
+	 * @param coolDownBit the cooldown bit of the behavior
+	 */
+	public void endCooldown(int coolDownBit) {
+		behaviorCooldowns &= ~(1L << coolDownBit);
+	}
+
+	/**
+	 * @return the position of this cell in the petri dish's list of cells
+	 */
+	public int getDishIndex() {
+		return dishIndex;
+	}
+
+	/**
+	 * @return the slot of the cell store holding this cell's physical
+	 *         information, or -1 if the cell was removed from the store
 	 */
-	public ArrayList<BehaviorCooldown> getBehaviorCooldowns() {
-		return behaviorCooldowns;
+	public int getStoreSlot() {
+		return storeSlot;
 	}
 
 	/**
-	 * @return the behavior type String which represents the type of action the Cell
-	 *         last took
+	 * @return the spatial grid bucket this cell is filed under, or -1 if it is
+	 *         not filed in a grid
 	 */
-	public String getCurrBehavior() {
+	public int getGridBucket() {
+		return gridBucket;
+	}
+
+	/**
+	 * @return the behavior type which represents the type of action the Cell last
+	 *         took
+	 */
+	public BehaviorType getCurrBehavior() {
 		return currBehavior;
 	}
 
 	/**
-	 * @return the color
+	 * Turns the status messages of every cell on or off, e.g. to keep a headless
+	 * run's output (and timing) free of them. A species with
+	 * SUPPRESS_EVENT_PRINTING set never prints either way.
+	 * 
+	 * @param eventPrinting false to silence every cell
 	 */
-	public Color getColor() {
+	public static void setEventPrinting(boolean eventPrinting) {
+		Cell.eventPrinting = eventPrinting;
+	}
+
+	/**
+	 * @return true only if this cell's status messages are to be printed
+	 */
+	protected boolean printsEvents() {
+		return eventPrinting && !SUPPRESS_EVENT_PRINTING;
+	}
+
+	/**
+	 * @return the color, as 0xAARRGGBB
+	 */
+	public int getColor() {
 		return color;
 	}
 
@@ -616,39 +769,107 @@ public abstract class Cell {
 		return species;
 	}
 
+	/**
+	 * @return the ID of the species in the SpeciesRegistry
+	 */
+	public int getSpeciesID() {
+		if (speciesID == -1) { // the species is set by the extending class' constructor, so look it up late
+			speciesID = SpeciesRegistry.idOf(species);
+		}
+		return speciesID;
+	}
+
 	/**
 	 * @param x the x position to put this cell at
 	 */
 	public void setX(double x) {
-		this.x = x;
+		store.setX(storeSlot, x);
+		petri.updateSpatialIndex(this);
 	}
 
 	/**
 	 * @param y the y position to put this cell at
 	 */
 	public void setY(double y) {
-		this.y = y;
+		store.setY(storeSlot, y);
+		petri.updateSpatialIndex(this);
 	}
 	
 	/**
 	 * @param energy the energy to put this cell at
 	 */
 	public void setEnergy(double energy) {
-		this.energy = energy;
+		store.setEnergy(storeSlot, energy);
 	}
 
 	/**
 	 * @param mass the mass to set
 	 */
 	public void setMass(double mass) {
-		this.mass = mass;
+		store.setMass(storeSlot, mass);
+	}
+
+	/**
+	 * Used by the PetriDish to keep track of where the cell is stored.
+	 * 
+	 * @param dishIndex the position of this cell in the petri dish's list of cells
+	 */
+	public void setDishIndex(int dishIndex) {
+		this.dishIndex = dishIndex;
 	}
 
 	/**
+	 * Used by the CellStore to keep track of where the cell is stored.
+	 * 
+	 * @param storeSlot the slot of the cell store holding this cell's physical
+	 *                  information
+	 */
+	public void setStoreSlot(int storeSlot) {
+		this.storeSlot = storeSlot;
+	}
+
+	/**
+	 * Used by the petri dish to move a cell's physical information from one cell
+	 * store to another, e.g. out of the store it was born in on a worker thread.
+	 * Does nothing if the cell is already in the given store.
+	 * 
+	 * @param newStore the store to move to
+	 */
+	public void moveToStore(CellStore newStore) {
+		if (newStore == store) {
+			return;
+		}
+		double x = getX();
+		double y = getY();
+		double xVelocity = getXVelocity();
+		double yVelocity = getYVelocity();
+		double mass = getMass();
+		double energy = getEnergy();
+
+		store.remove(storeSlot);
+		store = newStore;
+		store.allocate(this, x, y, xVelocity, yVelocity, mass);
+		setEnergy(energy);
+	}
+
+	/**
+	 * Used by the SpatialGrid to keep track of where the cell is filed.
+	 * 
+	 * @param gridBucket the spatial grid bucket this cell is filed under
+	 */
+	public void setGridBucket(int gridBucket) {
+		this.gridBucket = gridBucket;
+	}
+
+	/**
+	 * Gives this cell its CellBehaviorController, locking the controller if it
+	 * was not locked yet.
+	 * 
 	 * @param behaviors the CellBehaviorController that this cell will use to govern
 	 *                  its behavior
 	 */
 	public void setBehaviorController(CellBehaviorController behaviors) {
+		behaviors.lock(); // gives out the cooldown bits, and keeps the controller safe to share
 		this.behaviors = behaviors;
 	}
 
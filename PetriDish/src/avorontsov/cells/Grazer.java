@@ -2,9 +2,7 @@ package avorontsov.cells;
 
 import avorontsov.petridish.*;
 
-import java.util.ArrayList;
 import java.util.Random;
-import javafx.scene.paint.Color;
 
 /**
  * A simple creature, made for testing out various functions such as cell
@@ -16,6 +14,8 @@ import javafx.scene.paint.Color;
  */
 public class Grazer extends Cell {
 
+	private static final CellBehaviorController BEHAVIORS = createBehaviors(); // shared by every Grazer
+
 	/**
 	 * Create a Grazer. Grazers start out with 75 energy (almost enough to start
 	 * growing right away), and they are green.
@@ -36,14 +36,26 @@ public class Grazer extends Cell {
 			double energy) {
 		super(petri, rng, x, y, xVelocity, yVelocity, mass);
 		health = 100;
-		this.energy = energy;
-		color = Color.LAWNGREEN;
+		setEnergy(energy);
+		color = 0xFF7CFC00; // lawn green
 		maxAge = 3000;
 		friction = 0.85;
 		species = "Grazer";
 		baseVisionRange = 50;
 
-		// create the set of behaviors used by this cell
+		setBehaviorController(BEHAVIORS); // shared by every Grazer
+
+		SUPPRESS_EVENT_PRINTING = false;
+	}
+
+	/**
+	 * Helper method to build the set of behaviors shared by every Grazer. Called
+	 * once, when the class is loaded.
+	 * 
+	 * @return the locked behavior controller
+	 */
+	private static CellBehaviorController createBehaviors() {
+		// create the set of behaviors used by this species
 		CellBehaviorController behaviorSet = new CellBehaviorController();
 
 		// TODO review the behavior list
@@ -89,47 +101,44 @@ public class Grazer extends Cell {
 		wander.setEnergyCost(.25);
 		behaviorSet.addBehavior(wander);
 		
-		setBehaviorController(behaviorSet);
-
-		SUPPRESS_EVENT_PRINTING = false;
+		behaviorSet.lock(); // shared from here on, so no more changes
+		return behaviorSet;
 	}
 
 	/**
 	 * Customized Grazer behavior. Grazers can grow up to a maximum and starve down
 	 * to a minimum size, depending on available energy.
 	 * 
-	 * @see Cell#customizedCellBehaviors(ArrayList, ArrayList)
+	 * @see Cell#customizedCellBehaviors(Neighborhood, OffspringSink)
 	 */
 	@Override
-	public ArrayList<Cell> customizedCellBehaviors(ArrayList<Cell> visibleCells, ArrayList<Cell> touchedCells) {
-		if (energy > 75 && mass < 125) {
-			mass+= 10;
-			energy -= 4;
-			if (!SUPPRESS_EVENT_PRINTING)
+	public void customizedCellBehaviors(Neighborhood neighborhood, OffspringSink offspring) {
+		if (getEnergy() > 75 && getMass() < 125) {
+			setMass(getMass() + 10);
+			setEnergy(getEnergy() - 4);
+			if (printsEvents())
 				System.out.println(this + " grew one size.");
-		} else if (energy < 25 && mass > 45) {
-			mass -= 10;
-			energy += 3;
-			if (!SUPPRESS_EVENT_PRINTING)
+		} else if (getEnergy() < 25 && getMass() > 45) {
+			setMass(getMass() - 10);
+			setEnergy(getEnergy() + 3);
+			if (printsEvents())
 				System.out.println(this + " is starving!");
 		}
 
-		return super.customizedCellBehaviors(visibleCells, touchedCells); // squish() and starvation check
+		super.customizedCellBehaviors(neighborhood, offspring); // squish() and starvation check
 
 	}
 	
 	/**
 	 * Grazers spend 20 energy to divide.
 	 * 
-	 * @see avorontsov.cells.Cell#behaviorClone()
+	 * @see avorontsov.cells.Cell#behaviorClone(OffspringSink)
 	 */
 	@Override
-	public ArrayList<Cell> behaviorClone() {
-		energy = (energy-20)/2;
-		mass = mass/2;
-		ArrayList<Cell> newCell = new ArrayList<Cell>();
-		newCell.add(new Grazer(petri, rng, x, y, xVelocity, yVelocity, mass, energy));
-		return newCell;
+	public void behaviorClone(OffspringSink offspring) {
+		setEnergy((getEnergy()-20)/2);
+		setMass(getMass()/2);
+		offspring.add(new Grazer(petri, rng, getX(), getY(), getXVelocity(), getYVelocity(), getMass(), getEnergy()));
 	}
 
 }
@@ -3,9 +3,6 @@ import avorontsov.petridish.*;
 
 import java.util.ArrayList;
 import java.util.Random;
-import javafx.scene.Node;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Rectangle;
 
 /**
  * A non-moving creature which accumulates energy passively through photosynthesis and reproduces by planting its offspring nearby.
@@ -13,6 +10,10 @@ import javafx.scene.shape.Rectangle;
  * @author Andrey Vorontsov
  */
 public class Plant extends Cell {
+
+	private static final CellBehaviorController BEHAVIORS = createBehaviors(); // shared by every Plant
+	
+	private static final int PLANT_SPECIES_ID = SpeciesRegistry.idOf("Plant"); // Plants push other Plants extra far
 	
 	// side length calculated from size for graphics handling purposes
 	double side;
@@ -35,8 +36,8 @@ public class Plant extends Cell {
 	public Plant(PetriDish petri, Random rng, double x, double y, double xVelocity, double yVelocity, double mass, double energy) {
 		super(petri, rng, x, y, xVelocity, yVelocity, mass);
 		health = 100;
-		this.energy = energy;
-		color = Color.FORESTGREEN;
+		setEnergy(energy);
+		color = 0xFF228B22; // forest green
 		maxAge = -1; // can't die of old age
 		friction = 0; // cannot move
 		species = "Plant";
@@ -44,6 +45,18 @@ public class Plant extends Cell {
 		
 		updateGraphicSideLength(); // custom method necessary to use the square graphic
 		
+		setBehaviorController(BEHAVIORS); // shared by every Plant
+		
+		SUPPRESS_EVENT_PRINTING = false;
+	}
+
+	/**
+	 * Helper method to build the set of behaviors shared by every Plant. Called
+	 * once, when the class is loaded.
+	 * 
+	 * @return the locked behavior controller
+	 */
+	private static CellBehaviorController createBehaviors() {
 		// TODO review the behavior list
 		
 		CellBehaviorController behaviorSet = new CellBehaviorController();
@@ -57,62 +70,58 @@ public class Plant extends Cell {
 		
 		// passive behavior description
 		behaviorSet.addBehavior(new Behavior("sleep", null, 2));
-		setBehaviorController(behaviorSet);
 		
-		SUPPRESS_EVENT_PRINTING = false;
+		behaviorSet.lock(); // shared from here on, so no more changes
+		return behaviorSet;
 	}
 
 	/**
 	 * Plants slowly grow above a certain energy, and can get starved down. They also passively gain energy every update.
 	 * 
-	 * @see Cell#customizedCellBehaviors(ArrayList, ArrayList)
+	 * @see Cell#customizedCellBehaviors(Neighborhood, OffspringSink)
 	 */
 	@Override
-	public ArrayList<Cell> customizedCellBehaviors(ArrayList<Cell> visibleCells, ArrayList<Cell> touchedCells) {
-		if (energy < 350) {
-			if (mass < 60)
-				energy += 0.5;
-			else if (mass < 215)
-				energy += .75;
-			else if (mass < 450)
-				energy += 1.25;
+	public void customizedCellBehaviors(Neighborhood neighborhood, OffspringSink offspring) {
+		if (getEnergy() < 350) {
+			if (getMass() < 60)
+				setEnergy(getEnergy() + 0.5);
+			else if (getMass() < 215)
+				setEnergy(getEnergy() + .75);
+			else if (getMass() < 450)
+				setEnergy(getEnergy() + 1.25);
 			else
-				energy += 1;
+				setEnergy(getEnergy() + 1);
 		}
-		if (energy > 200 && mass < 750 && getRNG().nextInt(100) < 7) {
-			mass += 20;
-			energy -= 15;
-			if (!SUPPRESS_EVENT_PRINTING)
+		if (getEnergy() > 200 && getMass() < 750 && getRNG().nextInt(100) < 7) {
+			setMass(getMass() + 20);
+			setEnergy(getEnergy() - 15);
+			if (printsEvents())
 				System.out.println(this + " grew one size.");
 		}
-		if (energy < 30 && mass > 30) {
-			mass -= 20;
-			energy += 10;
-			if (!SUPPRESS_EVENT_PRINTING)
+		if (getEnergy() < 30 && getMass() > 30) {
+			setMass(getMass() - 20);
+			setEnergy(getEnergy() + 10);
+			if (printsEvents())
 				System.out.println(this + " is starving!");
 		}
 		// replace the functionality of the superclass method
 		// which calls the customized squish() and checks for death by starvation
-		if (getAge() > 1 && mass > 120) {
-			squish(touchedCells);
+		if (getAge() > 1 && getMass() > 120) {
+			petri.requestSquish(this, neighborhood.getTouchedCells());
 		}
 		
-		ArrayList<Cell> droppedCells = new ArrayList<Cell>();
-		
-		if (energy <= 0) {
+		if (getEnergy() <= 0) {
 			kill("starvation");
-			while (mass > 0) {
-				mass -= 40;
-				Agar droppedEnergy = new Agar(petri, rng, x + (rng.nextDouble() * 4 - 2), y + (rng.nextDouble() * 4 - 2), 0, 0, 20);
+			while (getMass() > 0) {
+				setMass(getMass() - 40);
+				Agar droppedEnergy = new Agar(petri, rng, getX() + (rng.nextDouble() * 4 - 2), getY() + (rng.nextDouble() * 4 - 2), 0, 0, 20);
 				droppedEnergy.setEnergy(10);
-				droppedCells.add(droppedEnergy); // drop at least one agar
+				offspring.add(droppedEnergy); // drop at least one agar
 				
 			}
 		}
 		
 		updateGraphicSideLength(); // updates this cell's custom graphic
-		
-		return droppedCells;
 	}
 
 	/**
@@ -125,18 +134,21 @@ public class Plant extends Cell {
 		for (Cell c : touchedCells) {
 			if (true) { // all species get squished out of the way by plants
 				// get the unit vector along which to push, then scale it so that the magnitude is equal to the sum of the radii of the cells
-				CellMovementVector pushUnit = getVectorToTarget(c.getX(), c.getY()).getUnitVector();
+				double pushX = c.getX() - getX();
+				double pushY = c.getY() - getY();
+				double distance = Math.sqrt(pushX * pushX + pushY * pushY);
 				double pushMagnitude = c.getRadius() + radius;
-				CellMovementVector push = new CellMovementVector(pushUnit.getXComponent() * pushMagnitude, pushUnit.getYComponent() * pushMagnitude);
+				pushX = pushX / distance * pushMagnitude;
+				pushY = pushY / distance * pushMagnitude;
 				// use the scaled vector to place the other cell at the appropriate distance, plus a tiny margin
 				
 				// push their offspring extra far
-				if (c.getSpecies().equals("Plant")) {
-					c.setX(x + 3 * push.getXComponent());
-					c.setY(y + 3 * push.getYComponent());
+				if (c.getSpeciesID() == PLANT_SPECIES_ID) {
+					c.setX(getX() + 3 * pushX);
+					c.setY(getY() + 3 * pushY);
 				} else {
-					c.setX(x + 1.1 * push.getXComponent());
-					c.setY(y + 1.1 * push.getYComponent());
+					c.setX(getX() + 1.1 * pushX);
+					c.setY(getY() + 1.1 * pushY);
 				}
 			}
 		}
@@ -146,35 +158,44 @@ public class Plant extends Cell {
 	/**
 	 * Plants spend 100 energy to spawn a tiny offspring "seed".
 	 * 
-	 * @see avorontsov.cells.Cell#behaviorClone()
+	 * @see avorontsov.cells.Cell#behaviorClone(OffspringSink)
 	 */
 	@Override
-	public ArrayList<Cell> behaviorClone() {
-		energy -= 100;
-		mass -= 35;
+	public void behaviorClone(OffspringSink offspring) {
+		setEnergy(getEnergy() - 100);
+		setMass(getMass() - 35);
 		
-		ArrayList<Cell> newCell = new ArrayList<Cell>();
-		newCell.add(new Plant(petri, rng, x + rng.nextDouble() - 0.5, y + rng.nextDouble() - 0.5, xVelocity, yVelocity, 35, 25));
-		return newCell;
+		offspring.add(new Plant(petri, rng, getX() + rng.nextDouble() - 0.5, getY() + rng.nextDouble() - 0.5, getXVelocity(), getYVelocity(), 35, 25));
 	}
 
 	/**
-	 * Customzied getGraphic(). Plants use a square.
+	 * Customized refreshAppearance(). Plants keep their square's side length up
+	 * to date with their radius.
 	 * 
-	 * @see Cell#getGraphic()
+	 * @see Cell#refreshAppearance()
 	 */
 	@Override
-	public Node getGraphic() {
-		super.getGraphic(); // a hack to get the radius value to update (TODO replace)
+	public void refreshAppearance() {
+		super.refreshAppearance();
 		updateGraphicSideLength();
-		Rectangle graphic = new Rectangle(x-(side/2), y-(side/2), side, side);
-		graphic.setFill(color);
-		
-		// this code doesn't really belong anywhere so it goes here
-		// plants have a little wavy animation (this looks bad and I commented it out)
-		// graphic.setRotate((double)(getAge() % 500)/500 * 360);
-		
-		return graphic;
+	}
+
+	/**
+	 * Plants use a square.
+	 * 
+	 * @see Cell#getShape()
+	 */
+	@Override
+	public CellShape getShape() {
+		return CellShape.SQUARE;
+	}
+
+	/**
+	 * @see Cell#getDrawnRadius()
+	 */
+	@Override
+	public double getDrawnRadius() {
+		return side / 2;
 	}
 	
 	/**
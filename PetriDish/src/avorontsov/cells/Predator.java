@@ -1,9 +1,7 @@
 package avorontsov.cells;
 import avorontsov.petridish.*;
 
-import java.util.ArrayList;
 import java.util.Random;
-import javafx.scene.paint.Color;
 
 /**
  * A creature with similar traits to the Grazer, except that in addition to eating agars it preys on small Grazers. Newborns are too small to hunt, so they are reliant on agars.
@@ -12,6 +10,8 @@ import javafx.scene.paint.Color;
  */
 public class Predator extends Cell {
 
+	private static final CellBehaviorController BEHAVIORS = createBehaviors(); // shared by every Predator
+
 	/**
 	 * Predators start out with 100 energy and are hot pink.
 	 * 
@@ -29,16 +29,28 @@ public class Predator extends Cell {
 	public Predator(PetriDish petri, Random rng, double x, double y, double xVelocity, double yVelocity, double mass, double energy) {
 		super(petri, rng, x, y, xVelocity, yVelocity, mass);
 		health = 100;
-		this.energy = energy;
-		color = Color.HOTPINK;
+		setEnergy(energy);
+		color = 0xFFFF69B4; // hot pink
 		maxAge = 2500;
 		friction = 0.81;
 		species = "Predator";
 		baseVisionRange = 100;
 		
+		setBehaviorController(BEHAVIORS); // shared by every Predator
+		
+		SUPPRESS_EVENT_PRINTING = false;
+	}
+
+	/**
+	 * Helper method to build the set of behaviors shared by every Predator. Called
+	 * once, when the class is loaded.
+	 * 
+	 * @return the locked behavior controller
+	 */
+	private static CellBehaviorController createBehaviors() {
 		// TODO review the behavior list
 		
-		// create the set of behaviors used by this cell
+		// create the set of behaviors used by this species
 		CellBehaviorController behaviorSet = new CellBehaviorController();
 				
 		Behavior eatAgars = new Behavior("eat", "Agar", 1);
@@ -81,47 +93,44 @@ public class Predator extends Cell {
 		wander.setEnergyCost(.25);
 		behaviorSet.addBehavior(wander);
 		
-		setBehaviorController(behaviorSet);
-		
-		SUPPRESS_EVENT_PRINTING = false;
+		behaviorSet.lock(); // shared from here on, so no more changes
+		return behaviorSet;
 	}
 
 	/**
 	 * Predators grow when well-fed and shrink when starving, akin to Grazers
 	 * 
-	 * @see Cell#customizedCellBehaviors(ArrayList, ArrayList)
+	 * @see Cell#customizedCellBehaviors(Neighborhood, OffspringSink)
 	 */
 	@Override
-	public ArrayList<Cell> customizedCellBehaviors(ArrayList<Cell> visibleCells, ArrayList<Cell> touchedCells) {
-		if (energy > 90 && mass < 330) {
-			mass += 10;
-			energy -= 5;
-			if (!SUPPRESS_EVENT_PRINTING)
+	public void customizedCellBehaviors(Neighborhood neighborhood, OffspringSink offspring) {
+		if (getEnergy() > 90 && getMass() < 330) {
+			setMass(getMass() + 10);
+			setEnergy(getEnergy() - 5);
+			if (printsEvents())
 				System.out.println(this + " grew one size.");
-		} else if (energy < 20 && mass > 100) {
-			mass -= 10;
-			energy += 4;
-			if (!SUPPRESS_EVENT_PRINTING)
+		} else if (getEnergy() < 20 && getMass() > 100) {
+			setMass(getMass() - 10);
+			setEnergy(getEnergy() + 4);
+			if (printsEvents())
 				System.out.println(this + " is starving!");
 		}
 		
-		return super.customizedCellBehaviors(visibleCells, touchedCells); // squish() and starvation check
+		super.customizedCellBehaviors(neighborhood, offspring); // squish() and starvation check
 
 	}
 	
 	/**
 	 * Predators spend 20 energy to divide.
 	 * 
-	 * @see avorontsov.cells.Cell#behaviorClone()
+	 * @see avorontsov.cells.Cell#behaviorClone(OffspringSink)
 	 */
 	@Override
-	public ArrayList<Cell> behaviorClone() {
-		energy = (energy-20)/2;
-		mass = mass/2;
+	public void behaviorClone(OffspringSink offspring) {
+		setEnergy((getEnergy()-20)/2);
+		setMass(getMass()/2);
 		
-		ArrayList<Cell> newCell = new ArrayList<Cell>();
-		newCell.add(new Predator(petri, rng, x, y, xVelocity, yVelocity, mass, energy));
-		return newCell;
+		offspring.add(new Predator(petri, rng, getX(), getY(), getXVelocity(), getYVelocity(), getMass(), getEnergy()));
 	}
 
 }
@@ -16,6 +16,10 @@ import avorontsov.cells.*;
  * ActionOrder to "eat" "Agar #300", which is trivial from the perspective of
  * the Cell class and thus doesn't need any other code to be isolated.
  * 
+ * Every cell keeps a single ActionOrder and has its CellBehaviorController fill
+ * it in again on every update, rather than being handed a new one each time.
+ * Anything an order holds is only good until the order is filled in again.
+ * 
  * @author Andrey Vorontsov
  */
 public class ActionOrder {
@@ -28,10 +32,18 @@ public class ActionOrder {
 	// calculated only for MOVE category behaviors
 	private double newTargetX; // the coordinates of the new target location
 	private double newTargetY;
-	private CellMovementVector newTargetingVector; // the calculated vector along which the cell may need to move; has
-													// an unknown magnitude depending on how far away the target is
+	private final CellMovementVector newTargetingVector = new CellMovementVector(0, 0); // the calculated vector
+												// along which the cell may need to move; has an unknown magnitude
+												// depending on how far away the target is
 	private double vectorScalar = 1; // the int scalar to scale the vector to. 1 by default (unit vector)
 
+	/**
+	 * Constructs an empty ActionOrder, to be filled in by a
+	 * CellBehaviorController.
+	 */
+	public ActionOrder() {
+	}
+
 	/**
 	 * Constructs an ActionOrder for the given Cell 'me' with a particular
 	 * sourceBehavior and with respect to a target, if one exists.
@@ -42,13 +54,30 @@ public class ActionOrder {
 	 * @param target         a target Cell if said behavior requires a target
 	 */
 	public ActionOrder(Cell me, Behavior sourceBehavior, Cell target) {
+		set(me, sourceBehavior, target);
+	}
+
+	/**
+	 * Fills this ActionOrder in again, for the given Cell 'me' with a particular
+	 * sourceBehavior and with respect to a target, if one exists. Whatever the
+	 * order held before is thrown out.
+	 * 
+	 * @param me             the Cell that this order applies to
+	 * @param sourceBehavior the particular behavior that cell has which produced
+	 *                       this order
+	 * @param target         a target Cell if said behavior requires a target
+	 * @return this order
+	 */
+	ActionOrder set(Cell me, Behavior sourceBehavior, Cell target) {
 		this.me = me;
 		this.sourceBehavior = sourceBehavior;
 		this.target = target;
+		vectorScalar = 1;
 
 		// movement orders generate an associated targeting vector with a scalar
-		if (sourceBehavior.getBehaviorCategory().equals("MOVE"))
+		if (sourceBehavior.getBehaviorCategory() == BehaviorCategory.MOVE)
 			generateMovementVector();
+		return this;
 	}
 
 	/**
@@ -62,55 +91,61 @@ public class ActionOrder {
 		newTargetX = me.getTargetX();
 		newTargetY = me.getTargetY();
 
-		String oldBehaviorType = me.getCurrBehavior(); // the behavior the cell had on the previous update
-		String newBehaviorType = sourceBehavior.getBehaviorType(); // the behavior which this order will apply
+		BehaviorType oldBehaviorType = me.getCurrBehavior(); // the behavior the cell had on the previous update
+		BehaviorType newBehaviorType = sourceBehavior.getBehaviorType(); // the behavior which this order will apply
 
 		// depending on the movement-type behavior; calculate the new target coordinates
 		// and vector
 
-		if (newBehaviorType.equals("pursue")) { // pursuit: move along a straight line to the target cell
+		switch (newBehaviorType) {
+		case PURSUE: // pursuit: move along a straight line to the target cell
 
 			// for pursuit, simply set the target coordinates to the location of the target
 			// cell
 			// movement vector scalar remains at default (1)
 			newTargetX = target.getX();
 			newTargetY = target.getY();
+			break;
 
-		} else if (newBehaviorType.equals("wander")) { // wander: generate a random vector using the current position
+		case WANDER: // wander: generate a random vector using the current position
 
 			// if we just started wandering or as we are approaching our last wander target,
 			// choose a new random target location
 			// also has a 15% chance to choose a new target location regardless, to prevent getting stuck
-			if (!oldBehaviorType.equals("wander") || oldTargetingVector.getMagnitude() < 5 || me.getRNG().nextInt(100) < 14) {
+			if (oldBehaviorType != BehaviorType.WANDER || oldTargetingVector.getMagnitude() < 5 || me.getRNG().nextInt(100) < 14) {
 				newTargetX = me.getX() + (me.getRNG().nextDouble() - 0.5) * 200;
 				newTargetY = me.getY() + (me.getRNG().nextDouble() - 0.5) * 200;
 
-			} else if (oldBehaviorType.equals("wander")) { // if we're already wandering, shuffle our destination
+			} else if (oldBehaviorType == BehaviorType.WANDER) { // if we're already wandering, shuffle our destination
 															// slightly
 				newTargetX = me.getTargetX() + (me.getRNG().nextDouble() - 0.5) * 6;
 				newTargetY = me.getTargetY() + (me.getRNG().nextDouble() - 0.5) * 6;
 			}
+			break;
 
-		} else if (newBehaviorType.equals("evade")) { // evasion: like pursuit, but in the opposite direction
+		case EVADE: // evasion: like pursuit, but in the opposite direction
 
 			// target a point in the opposite direction of the threat
 			// movement vector scalar default at 1
 			newTargetX = 2 * me.getX() - target.getX();
 			newTargetY = 2 * me.getY() - target.getY();
+			break;
 
-		} else if (newBehaviorType.equals("hunt")) { // hunt: like pursuit, but with an extra large vector
+		case HUNT: // hunt: like pursuit, but with an extra large vector
 
 			// target our victim, like with pursuit
 			newTargetX = target.getX();
 			newTargetY = target.getY();
 			// but we can expend a burst of energy to chase them down
 			vectorScalar = 3;
+			break;
 
-		} else if (newBehaviorType.equals("sleep")) { // sleep: do nothing
+		case SLEEP: // sleep: do nothing
 			
 			vectorScalar = 0;
+			break;
 			
-		} else {
+		default:
 			System.out.println("WARNING: Unrecognized behavior: " + newBehaviorType + ".");
 		}
 
@@ -127,9 +162,10 @@ public class ActionOrder {
 			newTargetY = me.getPetri().getSimulationHeight() - 15;
 		}
 
-		newTargetingVector = me.getVectorToTarget(newTargetX, newTargetY); // if no changes were made to the targetX and
-																			// Y, the cell will continue moving along
-																			// the old path (based on old target coords)
+		me.getVectorToTarget(newTargetX, newTargetY, newTargetingVector); // if no changes were made to the targetX
+																			// and Y, the cell will continue moving
+																			// along the old path (based on old target
+																			// coords)
 	}
 
 	/**
@@ -148,7 +184,8 @@ public class ActionOrder {
 
 	/**
 	 * @return a vector of unknown magnitude in the direction that the cell should
-	 *         move (for movement orders only; null for non-movement orders)
+	 *         move (for movement orders only; meaningless for non-movement
+	 *         orders)
 	 */
 	public CellMovementVector getVector() {
 		return newTargetingVector;
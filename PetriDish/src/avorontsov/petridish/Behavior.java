@@ -1,5 +1,7 @@
 package avorontsov.petridish;
 
+import avorontsov.cells.*;
+
 /**
  * A high-level representation of a particular behavior a given cell may have.
  * The encapsulated information informs the CellBehaviorController what checks should be made before a given action is taken.
@@ -8,17 +10,16 @@ package avorontsov.petridish;
  */
 public class Behavior {
 	
-	private static final String[] VALID_BEHAVIORS = {"eat", "nibble", "evade", "pursue", "hunt", "wander", "clone", "sleep"};
-	
 	// Notes on adding new behaviors or adjusting the implementation of old ones.
 	// Movement type behaviors are interpreted in ActionOrder.generateMovementVector()
 	// TODO complete this list
 	
-	private String behaviorCategory; // automatically initialized to categorize MOVE, EAT, REPRODUCE behaviors
-	private String behaviorType; // valid strings listed in VALID_BEHAVIORS
+	private BehaviorType behaviorType; // valid names listed in BehaviorType, which also gives the MOVE, EAT or
+										// REPRODUCE category
 	
 	// properties of the cells to be targeted, with default values
 	private String targetCellSpecies;
+	private int targetCellSpeciesID = -1; // looked up once from targetCellSpecies, -1 if there is no target species
 	private int targetCellMinMass = 0;
 	private int targetCellMaxMass = Integer.MAX_VALUE;
 	private double targetCellMinDistance = 0;
@@ -45,10 +46,14 @@ public class Behavior {
 	private double energyCost = 0;
 	// the number of ticks that must pass before this behavior can be used again
 	private int coolDown = 0;
+	private int coolDownBit = -1; // the bit marking this behavior in a cell's cooldown mask, given out by the
+									// controller when it is locked; -1 if the behavior has no cooldown
 	
 	private int priority; // used by CellMovementController to discriminate between higher and lower level
 					// importance behaviors (scale from 1 to 10, 1 highest)
 
+	private boolean locked = false; // true once the behavior may be shared, and can no longer be changed
+
 	/**
 	 * Produces a basic Behavior object. Optional fields may be initialized as needed. For certain behaviors that do not require a target, this constructor may be sufficient.
 	 * 
@@ -74,17 +79,9 @@ public class Behavior {
 		if (!checkValidBehavior(behaviorType)) {
 			throw new IllegalArgumentException("WARNING: Misconfigured or invalid cell behavior: " + behaviorType + ".");
 		}
-		this.behaviorType = behaviorType;
+		this.behaviorType = BehaviorType.forName(behaviorType); // the category comes along with the type
 		
-		// assign behavior category
-		if (behaviorType.equals("eat") || behaviorType.equals("nibble"))
-			behaviorCategory = "EAT";
-		else if (behaviorType.equals("clone"))
-			behaviorCategory = "REPRODUCE";
-		else // safe to use else because we validated the behaviorType
-			behaviorCategory = "MOVE"; 
-		
-		this.targetCellSpecies = targetCellSpecies;
+		setTargetCellSpecies(targetCellSpecies);
 		this.priority = priority;
 	}
 	
@@ -94,27 +91,88 @@ public class Behavior {
 	 * @returns true only when the behavior string is acceptable.
 	 */
 	public static boolean checkValidBehavior(String testBehavior) throws IllegalArgumentException {
-		boolean acceptable = false;
-		for (int i=0; i<VALID_BEHAVIORS.length; i++) {
-			if (testBehavior.equals(VALID_BEHAVIORS[i])) { // found a matching behavior
-				acceptable = true;
-				break;
-			}
+		return BehaviorType.forName(testBehavior) != null;
+	}
+	
+	/**
+	 * Checks a candidate target against this behavior's targeting specifications:
+	 * its size, its distance, its size relative to the acting cell, and the
+	 * touching or engulfing requirements. The species of the candidate is not
+	 * checked here.
+	 * 
+	 * @param me             the cell looking for a target
+	 * @param c              the candidate target cell
+	 * @param distanceToCell the distance between the two cells' centerpoints
+	 * @return true only if the candidate satisfies every targeting specification
+	 */
+	public boolean isMatchingTarget(Cell me, Cell c, double distanceToCell) {
+		double cellsRelSize = me.getMass() - c.getMass(); // positive when this cell is bigger
+
+		// the big if. checks all the behavior's conditions
+		if (c.getMass() >= targetCellMinMass // size
+				&& c.getMass() <= targetCellMaxMass // constraints
+
+				&& distanceToCell >= targetCellMinDistance // distance
+				&& distanceToCell <= targetCellMaxDistance // constraints
+
+				&& cellsRelSize >= targetCellMinRelMass // relative size
+				&& cellsRelSize <= targetCellMaxRelMass) { // constraints
+
+			// additional range checks based on hitboxes (NOT redundant with max distance!)
+
+			// if either hitbox condition is both set and fulfilled
+			return (targetCellMustBeEngulfed && distanceToCell < me.getRadius())
+					|| (targetCellMustBeTouching && distanceToCell < (me.getRadius() + c.getRadius()))
+					// or neither of them is set
+					|| (!targetCellMustBeEngulfed && !targetCellMustBeTouching);
 		}
-		return acceptable;
+		return false;
 	}
 	
+	/**
+	 * Locks this behavior against any further changes, so that it can be shared
+	 * between cells. Any setter called afterwards throws an
+	 * IllegalStateException.
+	 */
+	public void lock() {
+		locked = true;
+	}
+
+	/**
+	 * Used by the CellBehaviorController to give this behavior its bit in a
+	 * cell's cooldown mask, right before it locks the behavior.
+	 * 
+	 * @param coolDownBit the bit, from 0 to 63
+	 * @throws IllegalStateException if the behavior is already locked (e.g. it
+	 *                               belongs to another controller)
+	 */
+	void setCoolDownBit(int coolDownBit) {
+		checkUnlocked();
+		this.coolDownBit = coolDownBit;
+	}
+
+	/**
+	 * Helper method for the setters, which must not change a locked behavior.
+	 */
+	private void checkUnlocked() {
+		if (locked)
+			throw new IllegalStateException("Cannot change " + this + " after it was locked.");
+	}
+
 	/**
 	 * @param targetCellSpecies the targetCellSpecies to set
 	 */
 	public void setTargetCellSpecies(String targetCellSpecies) {
+		checkUnlocked();
 		this.targetCellSpecies = targetCellSpecies;
+		targetCellSpeciesID = targetCellSpecies == null ? -1 : SpeciesRegistry.idOf(targetCellSpecies);
 	}
 
 	/**
 	 * @param targetCellMinMass the targetCellMinMass to set
 	 */
 	public void setTargetCellMinMass(int targetCellMinMass) {
+		checkUnlocked();
 		this.targetCellMinMass = targetCellMinMass;
 	}
 
@@ -122,6 +180,7 @@ public class Behavior {
 	 * @param targetCellMaxMass the targetCellMaxMass to set
 	 */
 	public void setTargetCellMaxMass(int targetCellMaxMass) {
+		checkUnlocked();
 		this.targetCellMaxMass = targetCellMaxMass;
 	}
 
@@ -129,6 +188,7 @@ public class Behavior {
 	 * @param targetCellMinDistance the targetCellMinDistance to set
 	 */
 	public void setTargetCellMinDistance(double targetCellMinDistance) {
+		checkUnlocked();
 		this.targetCellMinDistance = targetCellMinDistance;
 	}
 
@@ -136,6 +196,7 @@ public class Behavior {
 	 * @param targetCellMaxDistance the targetCellMaxDistance to set
 	 */
 	public void setTargetCellMaxDistance(double targetCellMaxDistance) {
+		checkUnlocked();
 		this.targetCellMaxDistance = targetCellMaxDistance;
 	}
 
@@ -145,6 +206,7 @@ public class Behavior {
 	 * @param targetCellMinRelMass the targetCellMinRelMass to set
 	 */
 	public void setTargetCellMinRelMass(int targetCellMinRelMass) {
+		checkUnlocked();
 		this.targetCellMinRelMass = targetCellMinRelMass;
 	}
 
@@ -154,6 +216,7 @@ public class Behavior {
 	 * @param targetCellMaxRelMass the targetCellMaxRelMass to set
 	 */
 	public void setTargetCellMaxRelMass(int targetCellMaxRelMass) {
+		checkUnlocked();
 		this.targetCellMaxRelMass = targetCellMaxRelMass;
 	}
 
@@ -161,6 +224,7 @@ public class Behavior {
 	 * @param targetCellMustBeTouching the targetCellMustBeTouching to set
 	 */
 	public void setTargetCellMustBeTouching(boolean targetCellMustBeTouching) {
+		checkUnlocked();
 		this.targetCellMustBeTouching = targetCellMustBeTouching;
 	}
 
@@ -168,6 +232,7 @@ public class Behavior {
 	 * @param targetCellMustBeEngulfed the targetCellMustBeEngulfed to set
 	 */
 	public void setTargetCellMustBeEngulfed(boolean targetCellMustBeEngulfed) {
+		checkUnlocked();
 		this.targetCellMustBeEngulfed = targetCellMustBeEngulfed;
 	}
 
@@ -175,6 +240,7 @@ public class Behavior {
 	 * @param thisCellMinMass the thisCellMinMass to set
 	 */
 	public void setThisCellMinMass(int thisCellMinMass) {
+		checkUnlocked();
 		this.thisCellMinMass = thisCellMinMass;
 	}
 
@@ -182,6 +248,7 @@ public class Behavior {
 	 * @param thisCellMaxMass the thisCellMaxMass to set
 	 */
 	public void setThisCellMaxMass(int thisCellMaxMass) {
+		checkUnlocked();
 		this.thisCellMaxMass = thisCellMaxMass;
 	}
 
@@ -189,6 +256,7 @@ public class Behavior {
 	 * @param thisCellMinEnergy the thisCellMinEnergy to set
 	 */
 	public void setThisCellMinEnergy(double thisCellMinEnergy) {
+		checkUnlocked();
 		this.thisCellMinEnergy = thisCellMinEnergy;
 	}
 
@@ -196,6 +264,7 @@ public class Behavior {
 	 * @param thisCellMaxEnergy the thisCellMaxEnergy to set
 	 */
 	public void setThisCellMaxEnergy(double thisCellMaxEnergy) {
+		checkUnlocked();
 		this.thisCellMaxEnergy = thisCellMaxEnergy;
 	}
 
@@ -203,6 +272,7 @@ public class Behavior {
 	 * @param energyCost the energyCost to set
 	 */
 	public void setEnergyCost(double energyCost) {
+		checkUnlocked();
 		this.energyCost = energyCost;
 	}
 
@@ -210,6 +280,7 @@ public class Behavior {
 	 * @param coolDown the coolDown to set
 	 */
 	public void setCoolDown(int coolDown) {
+		checkUnlocked();
 		this.coolDown = coolDown;
 	}
 
@@ -217,20 +288,21 @@ public class Behavior {
 	 * @param maximumVisiblePopulation the maximumVisiblePopulation to set
 	 */
 	public void setMaximumVisiblePopulation(int maximumVisiblePopulation) {
+		checkUnlocked();
 		this.maximumVisiblePopulation = maximumVisiblePopulation;
 	}
 
 	/**
 	 * @return the behaviorCategory
 	 */
-	public String getBehaviorCategory() {
-		return behaviorCategory;
+	public BehaviorCategory getBehaviorCategory() {
+		return behaviorType.getCategory();
 	}
 
 	/**
 	 * @return the behaviorType
 	 */
-	public String getBehaviorType() {
+	public BehaviorType getBehaviorType() {
 		return behaviorType;
 	}
 
@@ -241,6 +313,14 @@ public class Behavior {
 		return targetCellSpecies;
 	}
 
+	/**
+	 * @return the ID of the targetCellSpecies in the SpeciesRegistry, or -1 if
+	 *         there is no target species
+	 */
+	public int getTargetCellSpeciesID() {
+		return targetCellSpeciesID;
+	}
+
 	/**
 	 * @return the targetCellMinMass
 	 */
@@ -339,6 +419,14 @@ public class Behavior {
 		return coolDown;
 	}
 
+	/**
+	 * @return the bit marking this behavior in a cell's cooldown mask, or -1 if
+	 *         the behavior has no cooldown
+	 */
+	public int getCoolDownBit() {
+		return coolDownBit;
+	}
+
 	/**
 	 * @return the maximumVisiblePopulation
 	 */
@@ -0,0 +1,13 @@
+package avorontsov.petridish;
+
+/**
+ * The broad categories of cell behaviors. Each category is enforced by the
+ * Cell class in its own way: MOVE behaviors adjust the cell's velocity, EAT
+ * behaviors take energy from a target, and REPRODUCE behaviors produce
+ * offspring.
+ * 
+ * @author Andrey Vorontsov
+ */
+public enum BehaviorCategory {
+	MOVE, EAT, REPRODUCE
+}
@@ -0,0 +1,66 @@
+package avorontsov.petridish;
+
+/**
+ * All the valid types of cell behaviors, each with the name used to configure
+ * it and the category it belongs to. Behaviors are resolved to one of these
+ * once, when the Behavior is constructed, so the simulation never has to
+ * compare behavior names while it runs.
+ * 
+ * @author Andrey Vorontsov
+ */
+public enum BehaviorType {
+	EAT("eat", BehaviorCategory.EAT),
+	NIBBLE("nibble", BehaviorCategory.EAT),
+	EVADE("evade", BehaviorCategory.MOVE),
+	PURSUE("pursue", BehaviorCategory.MOVE),
+	HUNT("hunt", BehaviorCategory.MOVE),
+	WANDER("wander", BehaviorCategory.MOVE),
+	CLONE("clone", BehaviorCategory.REPRODUCE),
+	SLEEP("sleep", BehaviorCategory.MOVE);
+
+	private final String name; // the name used to configure the behavior, e.g. "eat"
+	private final BehaviorCategory category;
+
+	private BehaviorType(String name, BehaviorCategory category) {
+		this.name = name;
+		this.category = category;
+	}
+
+	/**
+	 * Looks up a behavior type by the name used to configure it.
+	 * 
+	 * @param name the name of the behavior, e.g. "eat"
+	 * @return the matching behavior type, or null if there is none
+	 */
+	public static BehaviorType forName(String name) {
+		for (BehaviorType type : values()) {
+			if (type.name.equals(name)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the name used to configure the behavior, e.g. "eat"
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the category of the behavior
+	 */
+	public BehaviorCategory getCategory() {
+		return category;
+	}
+
+	/**
+	 * @return the name used to configure the behavior
+	 * @see java.lang.Enum#toString()
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,116 @@
+package avorontsov.petridish;
+
+import javafx.scene.Group;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import java.util.Arrays;
+
+/**
+ * Paints every cell onto a single Canvas, which is the only node in the
+ * simulation window. However many cells there are, the scene graph stays the
+ * same, so JavaFX has no nodes to sync, style or lay out; drawing a frame is
+ * just a run of fill calls.
+ * 
+ * Only the cells in the viewport are painted. Cells too small to see are
+ * painted as a single pixel.
+ * 
+ * The cells are painted grouped by color, so the fill only changes once per
+ * color rather than once per cell. The grouping is worked out once for every
+ * new frame or viewport (a counting sort by color index), and reused on every
+ * pulse until the next.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class CanvasRenderer extends FrameRenderer {
+
+	private final Canvas canvas;
+	private final GraphicsContext graphics;
+	private int[] order = new int[0]; // the index of every visible cell of the frame shown, grouped by color
+	private int[] colorStarts = new int[0]; // where each color's cells start in order, plus where the last ends
+
+	/**
+	 * Creates a renderer painting onto a canvas the size of the simulation
+	 * window.
+	 * 
+	 * @see FrameRenderer#FrameRenderer(Group, Viewport)
+	 */
+	public CanvasRenderer(Group root, Viewport viewport) {
+		super(root, viewport);
+		canvas = new Canvas(viewport.getWindowWidth(), viewport.getWindowHeight());
+		graphics = canvas.getGraphicsContext2D();
+		root.getChildren().setAll(canvas);
+	}
+
+	@Override
+	public void draw(Frame frame, boolean fresh, double progress) {
+		if (fresh) {
+			groupByColor(frame);
+		}
+
+		graphics.setTransform(1, 0, 0, 1, 0, 0);
+		graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		
+		// paint in dish coordinates, scaled and moved into the viewport
+		double scale = viewport.getScale();
+		graphics.setTransform(scale, 0, 0, scale, -viewport.getLeft() * scale, -viewport.getTop() * scale);
+		double pixel = 1 / scale; // the size of a pixel, in dish coordinates
+		double minRadius = MIN_DRAWN_RADIUS * pixel;
+		
+		for (int color = 0; color < frame.getPaletteSize(); color++) {
+			if (colorStarts[color] == colorStarts[color + 1]) {
+				continue; // no cells of this color
+			}
+			graphics.setFill(getColor(frame, color));
+			for (int k = colorStarts[color]; k < colorStarts[color + 1]; k++) {
+				int i = order[k];
+				double radius = frame.getRadius(i);
+				double left = frame.getX(i, progress) - radius;
+				double top = frame.getY(i, progress) - radius;
+				if (radius < minRadius) { // too small to see, so just a dot
+					graphics.fillRect(frame.getX(i, progress), frame.getY(i, progress), pixel, pixel);
+				} else if (frame.getShape(i) == CellShape.SQUARE) {
+					graphics.fillRect(left, top, 2 * radius, 2 * radius);
+				} else {
+					graphics.fillOval(left, top, 2 * radius, 2 * radius);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Helper method to group the cells of a new frame in the viewport by color,
+	 * keeping the cells of each color in the order of the frame.
+	 * 
+	 * @param frame the new frame
+	 */
+	private void groupByColor(Frame frame) {
+		int colors = frame.getPaletteSize();
+		if (colorStarts.length < colors + 1) {
+			colorStarts = new int[colors + 1];
+		}
+		if (order.length < frame.size()) {
+			order = new int[Math.max(frame.size(), order.length * 2)];
+		}
+		int visibleCount = cull(frame);
+
+		// count the cells of every color, then start each color where the colors before it end
+		Arrays.fill(colorStarts, 0);
+		for (int k = 0; k < visibleCount; k++) {
+			colorStarts[frame.getColorIndex(visible[k]) + 1]++;
+		}
+		for (int color = 0; color < colors; color++) {
+			colorStarts[color + 1] += colorStarts[color];
+		}
+
+		// file every cell, using the end of each color's filled part as a cursor (shifted down one)
+		for (int k = 0; k < visibleCount; k++) {
+			int i = visible[k];
+			order[colorStarts[frame.getColorIndex(i)]++] = i;
+		}
+		for (int color = colors; color > 0; color--) {
+			colorStarts[color] = colorStarts[color - 1]; // undo the shift
+		}
+		colorStarts[0] = 0;
+	}
+
+}
@@ -10,7 +10,7 @@ import java.util.ArrayList;
  * getNextActionOrder on its CellBehaviorController to find out what it needs to
  * do next. The Controller contains a list of Behaviors, sorted by priority.
  * getNextActionOrder() encapsulates the logic of what behavior to take this
- * update(). For instance, a Grazer might prioritize the behavior "evade"
+ * update. For instance, a Grazer might prioritize the behavior "evade"
  * "Predator" over "graze" "Plant". Specific criteria the Controller might
  * consider includes distance, relative speed and size, maybe even health and
  * color. The Controller and its Behaviors provide a high-level API for
@@ -19,12 +19,20 @@ import java.util.ArrayList;
  * which was chosen and relevant details (such as a CellMovementVector for MOVE
  * category behaviors).
  * 
+ * A Controller holds no information about any particular cell, so every member
+ * of a species can share the same one. Once a Controller is locked, neither it
+ * nor its Behaviors can be changed anymore, which makes sharing it safe.
+ * 
  * @author Andrey Vorontsov
  */
 public class CellBehaviorController {
 
+	// the order given when no behavior can be used
+	private static final Behavior DEFAULT_BEHAVIOR = createDefaultBehavior();
+
 	private ArrayList<Behavior> allBehaviors; // a sorted list of all behaviors, by priority (highest to lowest, ties
 												// broken by order of addition - older is higher)
+	private boolean locked = false; // true once the controller may be shared, and can no longer be changed
 
 	/**
 	 * Instantiates a CellBehaviorController with no behaviors defined. If queried
@@ -38,8 +46,12 @@ public class CellBehaviorController {
 	 * Adds a new behavior to this Controller.
 	 * 
 	 * @param behavior the behavior to add
+	 * @throws IllegalStateException if the controller is locked
 	 */
 	public void addBehavior(Behavior behavior) {
+		if (locked)
+			throw new IllegalStateException("Cannot add a behavior to a locked CellBehaviorController.");
+
 		int i = 0;
 		while (i < allBehaviors.size() && behavior.getPriority() >= allBehaviors.get(i).getPriority()) {
 			i++;
@@ -47,16 +59,65 @@ public class CellBehaviorController {
 		allBehaviors.add(i, behavior); // add the behavior at the last index of its priority level
 	}
 
+	/**
+	 * Locks this controller and all of its behaviors against any further changes,
+	 * so that it can be shared between cells. Every behavior with a cooldown is
+	 * given its own bit in the cells' cooldown masks. Does nothing if the
+	 * controller is already locked.
+	 * 
+	 * @throws IllegalStateException if more than 64 behaviors have cooldowns, or
+	 *                               if a behavior already belongs to another
+	 *                               locked controller
+	 */
+	public void lock() {
+		if (locked) {
+			return;
+		}
+
+		int nextCoolDownBit = 0;
+		for (Behavior behavior : allBehaviors) {
+			if (behavior.getCoolDown() > 0) {
+				if (nextCoolDownBit == Long.SIZE)
+					throw new IllegalStateException(
+							"Cannot lock a CellBehaviorController with more than " + Long.SIZE + " cooldowns.");
+				behavior.setCoolDownBit(nextCoolDownBit);
+				nextCoolDownBit++;
+			}
+			behavior.lock();
+		}
+		locked = true;
+	}
+
+	/**
+	 * @return true only if this controller is locked against changes
+	 */
+	public boolean isLocked() {
+		return locked;
+	}
+
 	/**
 	 * Applies the behavior logic encapsulated in the object, selecting a behavior
 	 * to use and a Cell target if one is needed outputting an ActionOrder that
 	 * encapsulates this information.
 	 * 
 	 * @param me           the cell asking for its next movement order
-	 * @param visibleCells a list of all cells visible to the cell
-	 * @return the ActionOrder for the cell to follow on this update()
+	 * @param neighborhood the cells visible to the cell, grouped by species
+	 * @return the ActionOrder for the cell to follow on this update
 	 */
-	public ActionOrder getNextActionOrder(Cell me, ArrayList<Cell> visibleCells) {
+	public ActionOrder getNextActionOrder(Cell me, Neighborhood neighborhood) {
+		return getNextActionOrder(me, neighborhood, new ActionOrder());
+	}
+
+	/**
+	 * Same as getNextActionOrder(Cell, Neighborhood), but fills in an ActionOrder
+	 * the cell already has instead of creating a new one.
+	 * 
+	 * @param me           the cell asking for its next movement order
+	 * @param neighborhood the cells visible to the cell, grouped by species
+	 * @param order        the order to fill in
+	 * @return the same order, filled in for the cell to follow on this update
+	 */
+	public ActionOrder getNextActionOrder(Cell me, Neighborhood neighborhood, ActionOrder order) {
 
 		// as a temporary measure, we simply consider every behavior in order of
 		// priority (TODO support for considering equal priority behaviors
@@ -67,22 +128,13 @@ public class CellBehaviorController {
 
 			// first check : does this cell match the conditions to take this behavior?
 			
-			// load this behavior's cooldown value, if it is on a cooldown right now
-			int myCooldown = 0;
-			for (BehaviorCooldown bc : me.getBehaviorCooldowns()) {
-				if (bc.getBehavior().equals(currBehavior)) { // equals() works... I think. TODO check
-					myCooldown = bc.getTicksRemaining();
-					break;
-				}
-			}
-
 			if (currBehavior.getThisCellMinEnergy() <= me.getEnergy() // this cell is in energy spec
 					&& currBehavior.getThisCellMaxEnergy() >= me.getEnergy()
 
 					&& currBehavior.getThisCellMinMass() <= me.getMass() // this cell is in size spec
 					&& currBehavior.getThisCellMaxMass() >= me.getMass()
 					
-					&& myCooldown <= 0) { // this cell doesn't have this behavior on cooldown
+					&& !me.isOnCooldown(currBehavior)) { // this cell doesn't have this behavior on cooldown
 
 				// second check : do the environmental conditions match?
 
@@ -93,13 +145,8 @@ public class CellBehaviorController {
 				if (currBehavior.getMaximumVisiblePopulation() != Integer.MAX_VALUE) {
 					// yes, the max population limit was set
 
-					// so we need to count them up
-					int visiblePopulationCount = 1; // incl. myself
-					for (Cell c : visibleCells) {
-						if (c.getSpecies().equals(me.getSpecies())) {
-							visiblePopulationCount++;
-						}
-					}
+					// so we need to count them up (the neighborhood already has them grouped)
+					int visiblePopulationCount = 1 + neighborhood.getVisibleCells(me.getSpeciesID()).size(); // incl. myself
 					if (visiblePopulationCount >= currBehavior.getMaximumVisiblePopulation()) {
 						populationCheckPassed = false; // the population density is too high!
 															// can't take this behavior
@@ -113,50 +160,12 @@ public class CellBehaviorController {
 					// code
 					if (currBehavior.requiresTarget()) {
 
-						// fourth check : check all visible cells to find closest cell matching the
-						// behavior's targeting specifications
-						Cell target = null;
-						double distanceToTarget = Double.MAX_VALUE; // used for comparison to find closest matching
-																	// target cell
-						for (Cell c : visibleCells) {
-
-							// load some useful values for the comparisons
-							double distanceToCell = PetriDish.distanceBetween(c.getX(), c.getY(), me.getX(), me.getY());
-							double cellsRelSize = me.getMass() - c.getMass(); // positive when this cell is bigger
-
-							// the big if. checks all the behavior's conditions
-							if (c.getSpecies().equals(currBehavior.getTargetCellSpecies()) // target matches species
-									&& c.getMass() >= currBehavior.getTargetCellMinMass() // size
-									&& c.getMass() <= currBehavior.getTargetCellMaxMass() // constraints
-
-									&& distanceToCell >= currBehavior.getTargetCellMinDistance() // distance
-									&& distanceToCell <= currBehavior.getTargetCellMaxDistance() // constraints
-									
-									&& cellsRelSize >= currBehavior.getTargetCellMinRelMass() // relative size
-									&& cellsRelSize <= currBehavior.getTargetCellMaxRelMass() // constraints
-									
-									&& (distanceToTarget > distanceToCell)) { // finally, target is closer than any
-																				// matching previous target
-
-								// additional range checks based on hitboxes (NOT redundant with max distance!)
-
-								// if either hitbox condition is both set and fulfilled
-								if ((currBehavior.doesTargetCellHaveToBeEngulfed() && distanceToCell < me.getRadius())
-										|| (currBehavior.doesTargetCellHaveToBeTouching()
-												&& distanceToCell < (me.getRadius() + c.getRadius()))
-										// or neither of them is set
-										|| (!currBehavior.doesTargetCellHaveToBeEngulfed()
-												&& !currBehavior.doesTargetCellHaveToBeTouching())) {
-									// only THEN can we choose the cell as a target
-
-									target = c;
-									distanceToTarget = distanceToCell;
-								}
-							} // no? try the next candidate cell
-						} // complete target search loop
+						// fourth check : ask the petri dish for the closest visible cell of the target
+						// species matching the behavior's targeting specifications
+						Cell target = me.getPetri().findNearestTarget(me, currBehavior);
 						
 						if (target != null) {// a target was found, generate the appropriate order
-							return new ActionOrder(me, currBehavior, target);
+							return order.set(me, currBehavior, target);
 						}
 						// if target still == null here, no target was found, the behavior cannot be
 						// used. try the next highest one
@@ -164,7 +173,7 @@ public class CellBehaviorController {
 						// end target search code
 					} else { // if no target required for this behavior
 						// no more checks are necessary
-						return new ActionOrder(me, currBehavior, null);
+						return order.set(me, currBehavior, null);
 
 					} // a target was required but no target was found, fourth check not satisfied
 
@@ -176,6 +185,15 @@ public class CellBehaviorController {
 		// loop completed, no ActionOrder produced
 
 		System.out.println("WARNING: " + me + "'s behavior controller failed to produce an action order.");
-		return new ActionOrder(me, new Behavior("sleep", 0), null); // a default ActionOrder
+		return order.set(me, DEFAULT_BEHAVIOR, null); // a default ActionOrder
+	}
+
+	/**
+	 * Helper method to build the behavior used when no other behavior can be.
+	 */
+	private static Behavior createDefaultBehavior() {
+		Behavior sleep = new Behavior("sleep", 0);
+		sleep.lock();
+		return sleep;
 	}
 }
@@ -5,6 +5,11 @@ package avorontsov.petridish;
  * 
  *         A convenience class to package movement data for a cell and
  *         facilitate calculations for moving towards a target.
+ * 
+ *         Vectors are mutable, so that cells and action orders can keep one
+ *         each and refill it on every update instead of creating new ones. The
+ *         unit components are worked out on the spot from the stored
+ *         components, without building a unit vector object.
  */
 public class CellMovementVector {
 
@@ -21,16 +26,56 @@ public class CellMovementVector {
 	 * @param magnitude  of the vector
 	 */
 	public CellMovementVector(double xComponent, double yComponent) {
+		set(xComponent, yComponent);
+	}
+
+	/**
+	 * Changes both components of the vector, and its magnitude to match.
+	 * 
+	 * @param xComponent the new xComponent
+	 * @param yComponent the new yComponent
+	 * @return this vector
+	 */
+	public CellMovementVector set(double xComponent, double yComponent) {
 		this.xComponent = xComponent;
 		this.yComponent = yComponent;
-		this.magnitude = Math.sqrt(Math.pow(xComponent, 2) + Math.pow(yComponent, 2));
+		this.magnitude = Math.sqrt(xComponent * xComponent + yComponent * yComponent);
+		return this;
+	}
+
+	/**
+	 * Makes this vector a copy of another one.
+	 * 
+	 * @param other the vector to copy
+	 * @return this vector
+	 */
+	public CellMovementVector set(CellMovementVector other) {
+		xComponent = other.xComponent;
+		yComponent = other.yComponent;
+		magnitude = other.magnitude;
+		return this;
+	}
+
+	/**
+	 * @return the xComponent of the unit vector in this vector's direction
+	 */
+	public double getUnitXComponent() {
+		return xComponent / magnitude;
+	}
+
+	/**
+	 * @return the yComponent of the unit vector in this vector's direction
+	 */
+	public double getUnitYComponent() {
+		return yComponent / magnitude;
 	}
 
 	/**
-	 * @return a unit vector from this vector
+	 * @return a unit vector from this vector; getUnitXComponent() and
+	 *         getUnitYComponent() give the same without creating a new vector
 	 */
 	public CellMovementVector getUnitVector() {
-		return new CellMovementVector(xComponent / magnitude, yComponent / magnitude);
+		return new CellMovementVector(getUnitXComponent(), getUnitYComponent());
 	}
 
 	/**
@@ -41,8 +86,7 @@ public class CellMovementVector {
 	 * @return a scaled vector from this vector
 	 */
 	public CellMovementVector getScaledVector(int scalar) {
-		return new CellMovementVector(getUnitVector().getXComponent() * scalar,
-				getUnitVector().getYComponent() * scalar);
+		return new CellMovementVector(getUnitXComponent() * scalar, getUnitYComponent() * scalar);
 	}
 
 	/**
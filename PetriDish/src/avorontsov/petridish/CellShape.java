@@ -0,0 +1,12 @@
+package avorontsov.petridish;
+
+/**
+ * The shapes a cell can be drawn as. Every shape is centered on the cell's
+ * position and sized by the cell's drawn radius: a circle of that radius, or a
+ * square with sides twice as long.
+ *
+ * @author Andrey Vorontsov
+ */
+public enum CellShape {
+	CIRCLE, SQUARE
+}
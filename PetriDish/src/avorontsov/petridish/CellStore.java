@@ -0,0 +1,247 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.Arrays;
+
+/**
+ * Holds the most frequently used physical information of every cell in the
+ * petri dish (position, velocity, mass and energy) in parallel arrays of
+ * primitives, so that loops over the cells walk through memory in order
+ * instead of chasing a reference to every cell. Cell objects are thin handles
+ * which only remember their slot in the store.
+ *
+ * The slots are kept dense. The cells placed in the dish occupy the first
+ * slots, in the same order as the petri dish's list of cells (so a placed
+ * cell's slot is always its dish index), and cells which were created but not
+ * yet placed (e.g. newborns) occupy the slots after them. Removing a cell swaps
+ * the last placed cell into its slot, just like the petri dish's list of cells,
+ * so removals stay O(1).
+ *
+ * @author Andrey Vorontsov
+ */
+public class CellStore {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	// the hot fields, one entry per slot
+	private double[] x;
+	private double[] y;
+	private double[] xVelocity;
+	private double[] yVelocity;
+	private double[] mass;
+	private double[] energy;
+
+	private Cell[] owners; // the cell each slot belongs to, used to tell a cell when its slot changes
+	private int size = 0; // the number of slots in use
+
+	/**
+	 * Creates an empty store.
+	 */
+	public CellStore() {
+		x = new double[INITIAL_CAPACITY];
+		y = new double[INITIAL_CAPACITY];
+		xVelocity = new double[INITIAL_CAPACITY];
+		yVelocity = new double[INITIAL_CAPACITY];
+		mass = new double[INITIAL_CAPACITY];
+		energy = new double[INITIAL_CAPACITY];
+		owners = new Cell[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Gives a newly created cell a slot at the end of the store. The cell is told
+	 * its slot right away.
+	 *
+	 * @param owner     the new cell
+	 * @param x         the x location of the cell
+	 * @param y         the y location of the cell
+	 * @param xVelocity the x velocity of the cell
+	 * @param yVelocity the y velocity of the cell
+	 * @param mass      the mass of the cell
+	 * @return the slot given to the cell
+	 */
+	public int allocate(Cell owner, double x, double y, double xVelocity, double yVelocity, double mass) {
+		if (size == owners.length) {
+			grow();
+		}
+
+		int slot = size;
+		size++;
+
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.xVelocity[slot] = xVelocity;
+		this.yVelocity[slot] = yVelocity;
+		this.mass[slot] = mass;
+		energy[slot] = 0;
+		owners[slot] = owner;
+		owner.setStoreSlot(slot);
+
+		return slot;
+	}
+
+	/**
+	 * Exchanges the contents of two slots, and tells both cells about their new
+	 * slots.
+	 *
+	 * @param a a slot in use
+	 * @param b another slot in use
+	 */
+	public void swap(int a, int b) {
+		if (a == b) {
+			return;
+		}
+		swap(x, a, b);
+		swap(y, a, b);
+		swap(xVelocity, a, b);
+		swap(yVelocity, a, b);
+		swap(mass, a, b);
+		swap(energy, a, b);
+
+		Cell temp = owners[a];
+		owners[a] = owners[b];
+		owners[b] = temp;
+		owners[a].setStoreSlot(a);
+		owners[b].setStoreSlot(b);
+	}
+
+	/**
+	 * Frees a slot by swapping the last slot in use into it and trimming off the
+	 * end. The cell which owned the freed slot is left with a slot of -1.
+	 *
+	 * @param slot the slot to free
+	 */
+	public void remove(int slot) {
+		swap(slot, size - 1);
+		size--;
+		owners[size].setStoreSlot(-1);
+		owners[size] = null; // let the dead cell be collected
+	}
+
+	/**
+	 * @return the number of slots in use
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @return the x location of the cell in that slot
+	 */
+	public double getX(int slot) {
+		return x[slot];
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @return the y location of the cell in that slot
+	 */
+	public double getY(int slot) {
+		return y[slot];
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @return the x velocity of the cell in that slot
+	 */
+	public double getXVelocity(int slot) {
+		return xVelocity[slot];
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @return the y velocity of the cell in that slot
+	 */
+	public double getYVelocity(int slot) {
+		return yVelocity[slot];
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @return the mass of the cell in that slot
+	 */
+	public double getMass(int slot) {
+		return mass[slot];
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @return the energy of the cell in that slot
+	 */
+	public double getEnergy(int slot) {
+		return energy[slot];
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @param x    the x location to give the cell in that slot
+	 */
+	public void setX(int slot, double x) {
+		this.x[slot] = x;
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @param y    the y location to give the cell in that slot
+	 */
+	public void setY(int slot, double y) {
+		this.y[slot] = y;
+	}
+
+	/**
+	 * @param slot      a slot in use
+	 * @param xVelocity the x velocity to give the cell in that slot
+	 */
+	public void setXVelocity(int slot, double xVelocity) {
+		this.xVelocity[slot] = xVelocity;
+	}
+
+	/**
+	 * @param slot      a slot in use
+	 * @param yVelocity the y velocity to give the cell in that slot
+	 */
+	public void setYVelocity(int slot, double yVelocity) {
+		this.yVelocity[slot] = yVelocity;
+	}
+
+	/**
+	 * @param slot a slot in use
+	 * @param mass the mass to give the cell in that slot
+	 */
+	public void setMass(int slot, double mass) {
+		this.mass[slot] = mass;
+	}
+
+	/**
+	 * @param slot   a slot in use
+	 * @param energy the energy to give the cell in that slot
+	 */
+	public void setEnergy(int slot, double energy) {
+		this.energy[slot] = energy;
+	}
+
+	/**
+	 * Helper method to double the capacity of every array.
+	 */
+	private void grow() {
+		int capacity = owners.length * 2;
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		xVelocity = Arrays.copyOf(xVelocity, capacity);
+		yVelocity = Arrays.copyOf(yVelocity, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		energy = Arrays.copyOf(energy, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+	}
+
+	/**
+	 * Helper method to exchange two entries of an array.
+	 */
+	private static void swap(double[] array, int a, int b) {
+		double temp = array[a];
+		array[a] = array[b];
+		array[b] = temp;
+	}
+
+}
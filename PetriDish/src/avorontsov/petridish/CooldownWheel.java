@@ -0,0 +1,164 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of when every behavior cooldown in the petri dish runs out, as a
+ * hierarchical timing wheel. Each cell marks the behaviors it has on cooldown
+ * in a bitmask (so checking a cooldown is a single bit test), and the wheel
+ * clears each bit on the tick its cooldown runs out.
+ *
+ * The wheel has several levels of 64 slots each. A slot of the finest level
+ * holds the cooldowns running out on one particular tick, a slot of the next
+ * level holds those running out within one particular stretch of 64 ticks, and
+ * so on. Whenever the finest level comes full circle, the next slot of the
+ * level above is emptied out into the finer levels, so every cooldown is moved
+ * at most once per level. Cooldowns too long for even the coarsest level are
+ * parked in its last slot and refiled until they fit.
+ *
+ * The slots keep the arrays they have grown, so once the dish settles into a
+ * steady state no more memory is allocated.
+ *
+ * Cells may start cooldowns from several threads at once when the petri dish
+ * has them act in parallel, so the wheel is synchronized. The order cooldowns
+ * are filed in doesn't matter, since each one only clears its own bit.
+ *
+ * @author Andrey Vorontsov
+ */
+public class CooldownWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS; // slots per level
+	private static final int LEVELS = 3; // covers 64^3 ticks ahead before parking anything
+
+	private final Slot[][] levels; // levels[level][slot]
+
+	private long tick = 0; // the current tick
+
+	/**
+	 * The cooldowns filed under a single slot of the wheel.
+	 */
+	private static class Slot {
+		private Cell[] cells = new Cell[4];
+		private int[] bits = new int[4];
+		private long[] expiries = new long[4]; // the tick each cooldown runs out on
+		private int size = 0;
+
+		private void add(Cell c, int bit, long expiry) {
+			if (size == cells.length) {
+				cells = Arrays.copyOf(cells, size * 2);
+				bits = Arrays.copyOf(bits, size * 2);
+				expiries = Arrays.copyOf(expiries, size * 2);
+			}
+			cells[size] = c;
+			bits[size] = bit;
+			expiries[size] = expiry;
+			size++;
+		}
+	}
+
+	/**
+	 * Creates an empty wheel, at tick 0.
+	 */
+	public CooldownWheel() {
+		levels = new Slot[LEVELS][SLOTS];
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				levels[level][slot] = new Slot();
+			}
+		}
+	}
+
+	/**
+	 * Puts a behavior of a cell on cooldown. The behavior can be used again once
+	 * the given number of ticks has passed.
+	 *
+	 * @param c     the cell
+	 * @param bit   the cooldown bit of the behavior
+	 * @param ticks the length of the cooldown, in ticks
+	 */
+	public synchronized void schedule(Cell c, int bit, int ticks) {
+		if (ticks <= 0) {
+			return; // no cooldown at all
+		}
+		c.startCooldown(bit);
+		file(c, bit, tick + ticks);
+	}
+
+	/**
+	 * Moves the wheel on to the next tick, ending every cooldown that runs out on
+	 * it. Called by the petri dish at the start of every tick.
+	 */
+	public synchronized void advance() {
+		tick++;
+
+		// whenever a level comes full circle, empty the next slot of the level above
+		// into the finer levels, coarsest first
+		for (int level = LEVELS - 1; level > 0; level--) {
+			if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+				cascade(levels[level][slotOf(tick, level)]);
+			}
+		}
+
+		Slot due = levels[0][slotOf(tick, 0)];
+		for (int i = 0; i < due.size; i++) {
+			due.cells[i].endCooldown(due.bits[i]);
+			due.cells[i] = null; // let dead cells be collected
+		}
+		due.size = 0;
+	}
+
+	/**
+	 * @return the current tick
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Helper method to file a cooldown under the finest level whose span reaches
+	 * its expiry.
+	 */
+	private void file(Cell c, int bit, long expiry) {
+		long delay = expiry - tick;
+		for (int level = 0; level < LEVELS; level++) {
+			if (delay < (1L << (SLOT_BITS * (level + 1)))) {
+				levels[level][slotOf(expiry, level)].add(c, bit, expiry);
+				return;
+			}
+		}
+		// too far ahead for the wheel; park it in the coarsest slot furthest ahead,
+		// it will be refiled from there
+		levels[LEVELS - 1][slotOf(tick - 1, LEVELS - 1)].add(c, bit, expiry);
+	}
+
+	/**
+	 * Helper method to refile every cooldown in a slot closer to its expiry.
+	 */
+	private void cascade(Slot slot) {
+		int size = slot.size;
+		slot.size = 0; // everything in the slot is refiled elsewhere (cooldowns never land back in the slot
+						// being emptied, not even parked ones)
+		for (int i = 0; i < size; i++) {
+			Cell c = slot.cells[i];
+			int bit = slot.bits[i];
+			long expiry = slot.expiries[i];
+			slot.cells[i] = null;
+			if (expiry <= tick) {
+				c.endCooldown(bit); // due on this very tick
+			} else {
+				file(c, bit, expiry);
+			}
+		}
+	}
+
+	/**
+	 * @return the slot of the given level that the given tick falls under
+	 */
+	private static int slotOf(long tick, int level) {
+		return (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+	}
+
+}
@@ -6,8 +6,10 @@ import java.util.ArrayList;
 
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.Separator;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 
@@ -55,21 +57,37 @@ public class CreateTab extends Tab {
 		secondBox.setSpacing(10);
 		secondBox.setAlignment(Pos.CENTER_LEFT);
 
+		createTabBox.getChildren().add(new Separator());
+		createTabBox.getChildren().add(new Label("New Simulation Performance"));
+
+		HBox thirdBox = new HBox();
+		createTabBox.getChildren().add(thirdBox);
+		thirdBox.setSpacing(10);
+		thirdBox.setAlignment(Pos.CENTER_LEFT);
+
+		createTabBox.getChildren().add(new Separator());
+		createTabBox.getChildren().add(new Label("New Simulation Rendering"));
+
+		HBox fourthBox = new HBox();
+		createTabBox.getChildren().add(fourthBox);
+		fourthBox.setSpacing(10);
+		fourthBox.setAlignment(Pos.CENTER_LEFT);
+
 		createTabBox.getChildren().add(new Separator());
 		// finished setting up organization
 
 		// begin adding GUI elements to their HBoxes
 
 		// width input box
-		BoundedIntField simDimWidthMsg = new BoundedIntField(PetriDishApp.MIN_PETRI_DISH_DIM,
-				PetriDishApp.MAX_PETRI_DISH_DIM);
+		BoundedIntField simDimWidthMsg = new BoundedIntField(SimulationConfig.MIN_PETRI_DISH_DIM,
+				SimulationConfig.MAX_PETRI_DISH_DIM);
 		simDimWidthMsg.setMaxWidth(75);
 
 		simDimWidthMsg.integerProperty().bindBidirectional(app.newSimulationWidth);
 
 		// height input box
-		BoundedIntField simDimHeightMsg = new BoundedIntField(PetriDishApp.MIN_PETRI_DISH_DIM,
-				PetriDishApp.MAX_PETRI_DISH_DIM);
+		BoundedIntField simDimHeightMsg = new BoundedIntField(SimulationConfig.MIN_PETRI_DISH_DIM,
+				SimulationConfig.MAX_PETRI_DISH_DIM);
 		simDimHeightMsg.setMaxWidth(75);
 
 		simDimHeightMsg.integerProperty().bindBidirectional(app.newSimulationHeight);
@@ -144,5 +162,42 @@ public class CreateTab extends Tab {
 			secondBox.getChildren().add(v);
 		}
 		
+		// input field for the neighbor list cache's skin distance, with its label
+		BoundedIntField neighborListSkinMsg = new BoundedIntField(0, SimulationConfig.MAX_NEIGHBOR_LIST_SKIN);
+		neighborListSkinMsg.setMaxWidth(50);
+
+		neighborListSkinMsg.integerProperty().bindBidirectional(app.newSimulationNeighborListSkin);
+		
+		thirdBox.getChildren().add(new Label("Neighbor list skin (0 = off)"));
+		thirdBox.getChildren().add(neighborListSkinMsg);
+		
+		// input field for the number of threads the cells are updated on, with its label
+		BoundedIntField tickThreadsMsg = new BoundedIntField(0, SimulationConfig.MAX_TICK_THREADS);
+		tickThreadsMsg.setMaxWidth(50);
+		
+		tickThreadsMsg.integerProperty().bindBidirectional(app.newSimulationTickThreads);
+		
+		thirdBox.getChildren().add(new Label("Tick threads (0 = simulation thread)"));
+		thirdBox.getChildren().add(tickThreadsMsg);
+		
+		// input field for the seed of the simulation's random numbers, with its label
+		BoundedIntField seedMsg = new BoundedIntField(0, Integer.MAX_VALUE);
+		seedMsg.setMaxWidth(100);
+		
+		seedMsg.integerProperty().bindBidirectional(app.newSimulationSeed);
+		seedMsg.setTooltip(new Tooltip("A seed repeats the same run for any number of tick threads."));
+		
+		thirdBox.getChildren().add(new Label("Seed (0 = random)"));
+		thirdBox.getChildren().add(seedMsg);
+		
+		// drop down for the way the simulation window is drawn, with its label
+		ChoiceBox<RenderMode> renderModeMsg = new ChoiceBox<RenderMode>();
+		renderModeMsg.getItems().addAll(RenderMode.values());
+		
+		renderModeMsg.valueProperty().bindBidirectional(app.newSimulationRenderMode);
+		
+		fourthBox.getChildren().add(new Label("Renderer"));
+		fourthBox.getChildren().add(renderModeMsg);
+		
 	}
 }
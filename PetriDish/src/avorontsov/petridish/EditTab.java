@@ -73,7 +73,7 @@ public class EditTab extends Tab {
 		// input field for agar feed rate
 		BoundedIntField agarFeedMsg = new BoundedIntField();
 		// agar feed slider
-		Slider agarFeed = new Slider(agarFeedMsg.getMinValue(), agarFeedMsg.getMaxValue(), PetriDishApp.DEFAULT_AGAR_FEED_FACTOR);
+		Slider agarFeed = new Slider(agarFeedMsg.getMinValue(), agarFeedMsg.getMaxValue(), SimulationConfig.DEFAULT_AGAR_FEED_FACTOR);
 
 		// configure elements
 		// text field for sim speed
@@ -0,0 +1,335 @@
+package avorontsov.petridish;
+
+import java.util.Arrays;
+
+/**
+ * Everything needed to draw the petri dish as it stood at the end of a tick.
+ * The simulation thread fills in a frame and publishes it, and the GUI thread
+ * draws it whenever it is ready to. Frames are handed between the two through
+ * a TripleBuffer and reused over and over, so they are cleared rather than
+ * replaced.
+ *
+ * A frame is just numbers, kept in parallel arrays indexed by the order the
+ * cells were added in: which cell it is (by cellID), where it is, how big it
+ * is, what shape it has and which color of the frame's palette it is drawn
+ * in. It holds no reference
+ * to a cell or to any graphics library, so it is cheap to fill in, and any
+ * FrameRenderer can draw it. Once published, a frame is not changed until it
+ * is handed back to the simulation thread.
+ *
+ * Along with each position the frame keeps how far the cell moved during the
+ * tick, so that the GUI thread can draw the cell anywhere between where it was
+ * before the tick and where it ended up, depending on how much of the next
+ * tick has gone by. This keeps motion smooth whatever the tick rate.
+ *
+ * Renderers which only show part of the dish can ask a frame for the cells in
+ * a rectangle. The first such query after a frame is filled in files the cells
+ * in a grid of square buckets, on the thread drawing the frame, and the rest
+ * reuse it.
+ *
+ * @author Andrey Vorontsov
+ */
+public class Frame {
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final double BUCKET_SIZE = 64; // the side of the buckets the cells are filed in for queries
+
+	private int size = 0; // the number of cells in the frame
+	private long[] cellIDs = new long[INITIAL_CAPACITY]; // the cellID of each cell
+	private double[] xs = new double[INITIAL_CAPACITY]; // where each cell ended up
+	private double[] ys = new double[INITIAL_CAPACITY];
+	private double[] offsetsX = new double[INITIAL_CAPACITY]; // where each cell was before the tick, relative to xs
+	private double[] offsetsY = new double[INITIAL_CAPACITY];
+	private double[] radii = new double[INITIAL_CAPACITY]; // the radius of a circle, or half the side of a square
+	private byte[] shapes = new byte[INITIAL_CAPACITY]; // the ordinal of each cell's CellShape
+	private int[] colors = new int[INITIAL_CAPACITY]; // the index of each cell's color in the palette
+	private int[] palette = new int[0]; // the colors of the frame, as 0xAARRGGBB, by species ID
+	private long tick; // the tick the frame shows
+	private long ticksPerSecond; // the simulation's tick rate at the time
+	private long publishTime; // when the frame was published, in System.nanoTime()
+	private long tickLength; // how long the simulation means to take per tick, in nanoseconds; 0 if uncapped
+
+	// the cells filed by where they ended up, for queries; built by the first query after the frame is filled in
+	private boolean indexed = false;
+	private int columns; // the number of buckets across and down
+	private int rows;
+	private double reach; // the furthest any cell may cover from where it ended up, during the tick
+	private int[] bucketCells = new int[0]; // the index of every cell, grouped by bucket
+	private int[] bucketStarts = new int[0]; // where each bucket's cells start in bucketCells, plus where the last ends
+
+	private static final CellShape[] SHAPES = CellShape.values();
+
+	/**
+	 * Empties the frame to be filled in for a new tick.
+	 *
+	 * @param tick           the tick the frame will show
+	 * @param ticksPerSecond the simulation's current tick rate
+	 */
+	void reset(long tick, long ticksPerSecond) {
+		size = 0;
+		indexed = false;
+		this.tick = tick;
+		this.ticksPerSecond = ticksPerSecond;
+	}
+
+	/**
+	 * Adds a cell to the frame.
+	 *
+	 * @param cellID  the cellID of the cell
+	 * @param x       the x position the cell ended up at
+	 * @param y       the y position the cell ended up at
+	 * @param offsetX how far right of x the cell was before the tick (negative if
+	 *                it was to the left)
+	 * @param offsetY how far down from y the cell was before the tick (negative
+	 *                if it was above)
+	 * @param radius  the radius of the cell's circle, or half the side of its
+	 *                square
+	 * @param shape   the shape of the cell
+	 * @param color   the index of the cell's color in the palette
+	 */
+	void add(long cellID, double x, double y, double offsetX, double offsetY, double radius, CellShape shape,
+			int color) {
+		if (size == xs.length) {
+			int capacity = size * 2;
+			cellIDs = Arrays.copyOf(cellIDs, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			offsetsX = Arrays.copyOf(offsetsX, capacity);
+			offsetsY = Arrays.copyOf(offsetsY, capacity);
+			radii = Arrays.copyOf(radii, capacity);
+			shapes = Arrays.copyOf(shapes, capacity);
+			colors = Arrays.copyOf(colors, capacity);
+		}
+		cellIDs[size] = cellID;
+		xs[size] = x;
+		ys[size] = y;
+		offsetsX[size] = offsetX;
+		offsetsY[size] = offsetY;
+		radii[size] = radius;
+		shapes[size] = (byte) shape.ordinal();
+		colors[size] = color;
+		size++;
+	}
+
+	/**
+	 * Stamps the frame as it is published.
+	 *
+	 * @param publishTime when the frame is published, in System.nanoTime()
+	 * @param tickLength  how long the simulation means to take for the next tick,
+	 *                    in nanoseconds; 0 if the tick rate is uncapped
+	 * @param palette     the colors of the species, as 0xAARRGGBB, by species ID;
+	 *                    copied into the frame
+	 */
+	void stamp(long publishTime, long tickLength, int[] palette) {
+		this.publishTime = publishTime;
+		this.tickLength = tickLength;
+		if (this.palette.length != palette.length) {
+			this.palette = new int[palette.length];
+		}
+		System.arraycopy(palette, 0, this.palette, 0, palette.length);
+	}
+
+	/**
+	 * @param now the current time, in System.nanoTime()
+	 * @return how much of the way from before the tick to after it the cells
+	 *         should be drawn at, from 0 to 1, going by how much of the next tick
+	 *         has gone by since the frame was published
+	 */
+	public double getProgress(long now) {
+		if (tickLength <= 0) {
+			return 1; // ticks come as fast as they can, so there is nothing to wait for
+		}
+		return Math.min(1, Math.max(0, (double) (now - publishTime) / tickLength));
+	}
+
+	/**
+	 * Finds every cell which may cover some part of a rectangle at any point
+	 * during the tick.
+	 *
+	 * @param left   the left edge of the rectangle
+	 * @param top    the top edge of the rectangle
+	 * @param right  the right edge of the rectangle
+	 * @param bottom the bottom edge of the rectangle
+	 * @param found  filled in with the index of every cell found, in the order
+	 *               of the frame; must be at least size() long
+	 * @return the number of cells found
+	 */
+	public int findCellsIn(double left, double top, double right, double bottom, int[] found) {
+		if (!indexed) {
+			index();
+		}
+		int firstColumn = Math.max(0, (int) Math.floor((left - reach) / BUCKET_SIZE));
+		int lastColumn = Math.min(columns - 1, (int) Math.floor((right + reach) / BUCKET_SIZE));
+		int firstRow = Math.max(0, (int) Math.floor((top - reach) / BUCKET_SIZE));
+		int lastRow = Math.min(rows - 1, (int) Math.floor((bottom + reach) / BUCKET_SIZE));
+
+		int count = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				int bucket = column + row * columns;
+				for (int k = bucketStarts[bucket]; k < bucketStarts[bucket + 1]; k++) {
+					int i = bucketCells[k];
+					double x0 = Math.min(xs[i], xs[i] + offsetsX[i]) - radii[i];
+					double x1 = Math.max(xs[i], xs[i] + offsetsX[i]) + radii[i];
+					double y0 = Math.min(ys[i], ys[i] + offsetsY[i]) - radii[i];
+					double y1 = Math.max(ys[i], ys[i] + offsetsY[i]) + radii[i];
+					if (x1 >= left && x0 <= right && y1 >= top && y0 <= bottom) {
+						found[count++] = i;
+					}
+				}
+			}
+		}
+		Arrays.sort(found, 0, count); // back in the order of the frame, so later cells are drawn on top
+		return count;
+	}
+
+	/**
+	 * Helper method to file the cells in buckets by where they ended up, for
+	 * findCellsIn().
+	 */
+	private void index() {
+		double maxX = 0;
+		double maxY = 0;
+		reach = 0;
+		for (int i = 0; i < size; i++) {
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+			reach = Math.max(reach, radii[i] + Math.max(Math.abs(offsetsX[i]), Math.abs(offsetsY[i])));
+		}
+		columns = (int) (maxX / BUCKET_SIZE) + 1;
+		rows = (int) (maxY / BUCKET_SIZE) + 1;
+		int bucketCount = columns * rows;
+		if (bucketStarts.length < bucketCount + 1) {
+			bucketStarts = new int[bucketCount + 1];
+		}
+		if (bucketCells.length < size) {
+			bucketCells = new int[xs.length];
+		}
+
+		// count the cells in every bucket, then start each bucket where the buckets before it end
+		Arrays.fill(bucketStarts, 0, bucketCount + 1, 0);
+		for (int i = 0; i < size; i++) {
+			bucketStarts[getBucket(i) + 1]++;
+		}
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			bucketStarts[bucket + 1] += bucketStarts[bucket];
+		}
+
+		// file every cell, using the end of each bucket's filled part as a cursor (shifted down one)
+		for (int i = 0; i < size; i++) {
+			bucketCells[bucketStarts[getBucket(i)]++] = i;
+		}
+		for (int bucket = bucketCount; bucket > 0; bucket--) {
+			bucketStarts[bucket] = bucketStarts[bucket - 1]; // undo the shift
+		}
+		bucketStarts[0] = 0;
+		indexed = true;
+	}
+
+	/**
+	 * @param i the index of a cell in the frame
+	 * @return the bucket the cell is filed in
+	 */
+	private int getBucket(int i) {
+		int column = Math.max(0, (int) (xs[i] / BUCKET_SIZE));
+		int row = Math.max(0, (int) (ys[i] / BUCKET_SIZE));
+		return column + row * columns;
+	}
+
+	/**
+	 * @return the number of cells in the frame
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i the index of a cell in the frame
+	 * @return the cellID of the cell
+	 */
+	public long getCellID(int i) {
+		return cellIDs[i];
+	}
+
+	/**
+	 * @param i the index of a cell in the frame
+	 * @return true only if the cell moved during the tick, and so is drawn in a
+	 *         different place as the next tick goes by
+	 */
+	public boolean isMoving(int i) {
+		return offsetsX[i] != 0 || offsetsY[i] != 0;
+	}
+
+	/**
+	 * @param i        the index of a cell in the frame
+	 * @param progress how far along the tick to draw the cell, see getProgress()
+	 * @return the x position to draw the cell at
+	 */
+	public double getX(int i, double progress) {
+		return xs[i] + offsetsX[i] * (1 - progress);
+	}
+
+	/**
+	 * @param i        the index of a cell in the frame
+	 * @param progress how far along the tick to draw the cell, see getProgress()
+	 * @return the y position to draw the cell at
+	 */
+	public double getY(int i, double progress) {
+		return ys[i] + offsetsY[i] * (1 - progress);
+	}
+
+	/**
+	 * @param i the index of a cell in the frame
+	 * @return the radius of the cell's circle, or half the side of its square
+	 */
+	public double getRadius(int i) {
+		return radii[i];
+	}
+
+	/**
+	 * @param i the index of a cell in the frame
+	 * @return the shape of the cell
+	 */
+	public CellShape getShape(int i) {
+		return SHAPES[shapes[i]];
+	}
+
+	/**
+	 * @param i the index of a cell in the frame
+	 * @return the index of the cell's color in the palette
+	 */
+	public int getColorIndex(int i) {
+		return colors[i];
+	}
+
+	/**
+	 * @return the number of colors in the palette; every color index is less
+	 *         than this
+	 */
+	public int getPaletteSize() {
+		return palette.length;
+	}
+
+	/**
+	 * @param colorIndex the index of a color in the palette
+	 * @return the color, as 0xAARRGGBB
+	 */
+	public int getColor(int colorIndex) {
+		return palette[colorIndex];
+	}
+
+	/**
+	 * @return the tick the frame shows
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the simulation's tick rate when the frame was made
+	 */
+	public long getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+}
@@ -0,0 +1,104 @@
+package avorontsov.petridish;
+
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Affine;
+
+/**
+ * Draws the frames published by the petri dish into the simulation window.
+ * Extending classes decide how the cells are actually drawn. A renderer lives
+ * on the GUI thread, and is asked to draw on every pulse, whether or not a new
+ * frame has come in since the last, so that it can move the cells along as the
+ * next tick goes by.
+ *
+ * Only the part of the dish in the viewport is drawn, and renderers should
+ * leave out any cell which isn't in it, see cull().
+ *
+ * @author Andrey Vorontsov
+ */
+public abstract class FrameRenderer {
+
+	// cells drawn with less than this radius, in pixels, are drawn as a single pixel by renderers which can
+	public static final double MIN_DRAWN_RADIUS = 1;
+
+	protected final Group root; // the root of the simulation window's scene graph, to draw in
+	protected final Viewport viewport; // the part of the dish to draw
+	protected int[] visible = new int[0]; // the index of every cell found by the last cull(), in frame order
+	private Affine rootTransform; // moves the whole scene graph into the viewport, see transformRoot()
+	private Color[] colors = new Color[0]; // the colors of the last palette seen, by color index
+	private int[] argbs = new int[0]; // the same colors, as 0xAARRGGBB
+
+	/**
+	 * Creates a renderer drawing into the simulation window.
+	 *
+	 * @param root     the root of the simulation window's scene graph
+	 * @param viewport the part of the dish to draw
+	 */
+	protected FrameRenderer(Group root, Viewport viewport) {
+		this.root = root;
+		this.viewport = viewport;
+	}
+
+	/**
+	 * Draws a frame. Only to be used by the GUI thread.
+	 *
+	 * @param frame    the newest frame the GUI thread has
+	 * @param fresh    true only if the frame was not drawn before, or the
+	 *                 viewport changed since it was
+	 * @param progress how far along the tick to draw the cells, see
+	 *                 Frame.getProgress()
+	 */
+	public abstract void draw(Frame frame, boolean fresh, double progress);
+
+	/**
+	 * Helper method to find the cells of a frame which are in the viewport. They
+	 * are put in visible.
+	 *
+	 * @param frame the frame
+	 * @return the number of cells found
+	 */
+	protected int cull(Frame frame) {
+		if (visible.length < frame.size()) {
+			visible = new int[Math.max(frame.size(), visible.length * 2)];
+		}
+		return frame.findCellsIn(viewport.getLeft(), viewport.getTop(), viewport.getRight(), viewport.getBottom(),
+				visible);
+	}
+
+	/**
+	 * Helper method for renderers which place nodes in dish coordinates to have
+	 * the root of the scene graph scale and move them into the viewport.
+	 */
+	protected void transformRoot() {
+		if (rootTransform == null) {
+			rootTransform = new Affine();
+			root.getTransforms().setAll(rootTransform);
+		}
+		double scale = viewport.getScale();
+		rootTransform.setToTransform(scale, 0, -viewport.getLeft() * scale, 0, scale, -viewport.getTop() * scale);
+	}
+
+	/**
+	 * Helper method to look up a color of a frame's palette as a JavaFX color.
+	 * The colors are kept from frame to frame, and only made again when the
+	 * palette changes.
+	 *
+	 * @param frame      the frame
+	 * @param colorIndex the index of the color in the frame's palette
+	 * @return the color
+	 */
+	protected Color getColor(Frame frame, int colorIndex) {
+		if (colors.length != frame.getPaletteSize()) {
+			colors = new Color[frame.getPaletteSize()];
+			argbs = new int[frame.getPaletteSize()];
+		}
+		int argb = frame.getColor(colorIndex);
+		if (colors[colorIndex] == null || argbs[colorIndex] != argb) {
+			colors[colorIndex] = Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF,
+					((argb >>> 24) & 0xFF) / 255.0);
+			argbs[colorIndex] = argb;
+		}
+		return colors[colorIndex];
+	}
+
+}
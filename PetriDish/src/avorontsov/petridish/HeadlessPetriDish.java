@@ -0,0 +1,148 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.Cell;
+
+/**
+ * Runs a petri dish from the command line, with no window, as fast as it can
+ * go, and reports how fast it went and who is left. Handy for benchmarking,
+ * and for checking that a change to the simulation doesn't change its
+ * outcome (the same seed and settings give the same run every time).
+ * 
+ * Usage: HeadlessPetriDish [ticks=N] [option=value ...], see USAGE
+ * 
+ * @author Andrey Vorontsov
+ */
+public class HeadlessPetriDish {
+
+	private static final int DEFAULT_TICKS = 1000;
+
+	private static final String USAGE = "Usage: HeadlessPetriDish [option=value ...]\n"
+			+ "  ticks=N      the number of ticks to run (default " + DEFAULT_TICKS + ")\n"
+			+ "  report=N     also report the population every N ticks (default 0, never)\n"
+			+ "  width=N      the width of the dish\n"
+			+ "  height=N     the height of the dish\n"
+			+ "  agar=N       the starting number of agar cells\n"
+			+ "  grazers=N    the starting number of grazers\n"
+			+ "  predators=N  the starting number of predators\n"
+			+ "  plants=N     the starting number of plants\n"
+			+ "  feed=N       the most agar cells added in one tick\n"
+			+ "  skin=N       the neighbor list skin, 0 turns the cache off\n"
+			+ "  threads=N    the number of tick threads, 0 runs on the main thread alone\n"
+			+ "  seed=N       the seed, 0 picks a new one\n"
+			+ "  log=B        true to print the cells' status messages (default false)";
+
+	private HeadlessPetriDish() {
+		// not instantiable
+	}
+
+	/**
+	 * Runs a petri dish for the number of ticks asked for.
+	 * 
+	 * @param args the options, as option=value
+	 */
+	public static void main(String[] args) {
+		SimulationConfig config = new SimulationConfig();
+		long ticks = DEFAULT_TICKS;
+		long reportInterval = 0;
+		boolean log = false; // the cells' chatter would bury the report, and the printing slow the run
+		
+		try {
+			for (String arg : args) {
+				int split = arg.indexOf('=');
+				if (split < 0) {
+					throw new IllegalArgumentException("Expected option=value, not " + arg + ".");
+				}
+				String option = arg.substring(0, split);
+				String value = arg.substring(split + 1);
+				switch (option) {
+				case "ticks":
+					ticks = Long.parseLong(value);
+					break;
+				case "report":
+					reportInterval = Long.parseLong(value);
+					break;
+				case "width":
+					config.setWidth(Integer.parseInt(value));
+					break;
+				case "height":
+					config.setHeight(Integer.parseInt(value));
+					break;
+				case "agar":
+					config.setAgarPop(Integer.parseInt(value));
+					break;
+				case "grazers":
+					config.setGrazerPop(Integer.parseInt(value));
+					break;
+				case "predators":
+					config.setPredPop(Integer.parseInt(value));
+					break;
+				case "plants":
+					config.setPlantPop(Integer.parseInt(value));
+					break;
+				case "feed":
+					config.setAgarFeedFactor(Integer.parseInt(value));
+					break;
+				case "skin":
+					config.setNeighborListSkin(Integer.parseInt(value));
+					break;
+				case "threads":
+					config.setTickThreads(Integer.parseInt(value));
+					break;
+				case "log":
+					log = Boolean.parseBoolean(value);
+					break;
+				case "seed":
+					config.setSeed(Integer.parseInt(value));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + option + ".");
+				}
+			}
+		} catch (IllegalArgumentException e) { // includes NumberFormatException
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		
+		Cell.setEventPrinting(log);
+		
+		long setupStartTime = System.nanoTime();
+		PetriDish petri = new PetriDish(config);
+		long setupTime = System.nanoTime() - setupStartTime;
+		System.out.println("Simulation seed: " + petri.getSeed());
+		System.out.println("Set up " + petri.getCellCount() + " cells in " + setupTime / 1000000 + " ms.");
+		report(petri);
+		
+		long cellUpdates = 0; // the number of cells there were to update, summed over every tick
+		long startTime = System.nanoTime();
+		for (long tick = 1; tick <= ticks; tick++) {
+			cellUpdates += petri.getCellCount();
+			petri.step();
+			if (reportInterval > 0 && tick % reportInterval == 0 && tick < ticks) {
+				report(petri);
+			}
+		}
+		long elapsed = Math.max(1, System.nanoTime() - startTime);
+		petri.shutdown();
+		
+		report(petri);
+		System.out.println("Ran " + ticks + " ticks in " + elapsed / 1000000 + " ms: "
+				+ String.format("%.1f", ticks * 1e9 / elapsed) + " ticks per second, "
+				+ String.format("%.0f", cellUpdates * 1e9 / elapsed) + " cell updates per second.");
+	}
+
+	/**
+	 * Helper method to print the tick a petri dish is on and the population of
+	 * every species in it.
+	 * 
+	 * @param petri the petri dish
+	 */
+	private static void report(PetriDish petri) {
+		StringBuilder line = new StringBuilder("Tick " + petri.getTick() + ":");
+		for (int id = 0; id < SpeciesRegistry.size(); id++) {
+			line.append(" ").append(SpeciesRegistry.nameOf(id)).append(" ").append(petri.getPopulation(id));
+		}
+		System.out.println(line);
+	}
+
+}
@@ -0,0 +1,233 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.ArrayList;
+
+/**
+ * An optional cache of neighbor lists for the petri dish, in the style of
+ * Verlet lists. Each cell keeps a list of candidate neighbors gathered from a
+ * little further away than it needs (the extra distance being the skin), so
+ * that the same list can be reused across ticks while cells only drift a pixel
+ * or two. Every neighborhood query still filters the candidates exactly, so the
+ * results are identical to asking the spatial grids.
+ *
+ * To stay exact, every cell is anchored at the position it had when the lists
+ * were last reset. As long as no cell drifts more than half the skin from its
+ * anchor, any two cells can have closed in on each other by at most two skins
+ * (counting the drift since a list was gathered), which is why lists are
+ * gathered two skins past the reach they promise. Once any cell drifts too far,
+ * the cache steps aside (queries go to the spatial grids) until the start of
+ * the next tick, when every anchor is reset and every list is thrown out, to be
+ * gathered again the next time it is needed. Newborns are slipped into the
+ * lists of the cells they could come in range of, and dead cells are skipped;
+ * so that the lists don't fill up with the dead (or grow without end in a
+ * crowded dish), they are also all thrown out at the start of a tick once
+ * enough cells were born or died since the last reset.
+ *
+ * The cache keeps one entry per cell, in the same order as the petri dish's list
+ * of cells, and must be told about every cell that is placed, moved or removed.
+ * Several cells may query the cache at once, as long as nothing is placed,
+ * moved or removed meanwhile.
+ *
+ * @author Andrey Vorontsov
+ */
+public class NeighborListCache {
+
+	private final PetriDish petri; // used to gather the lists from the spatial grids
+	private final double skin; // the extra distance each list is gathered from
+	private final double maxDriftSquared; // how far a cell may drift from its anchor (half the skin), squared
+
+	private final ArrayList<Entry> entries = new ArrayList<Entry>(); // one for every cell, in the order of the
+																		// petri dish's list of cells
+	private double maxReach = 0; // the largest reach of any list gathered since the last reset
+	private boolean drifted = false; // true once any cell drifted too far from its anchor, until the next reset
+	private int churn = 0; // the number of cells born or died since the last reset
+
+	private final ArrayList<Cell> newbornScratch = new ArrayList<Cell>(); // used when slipping newborns in
+	private final ThreadLocal<ArrayList<Cell>> gatherScratch = new ThreadLocal<ArrayList<Cell>>() { // used when
+										// gathering lists, on whatever thread the querying cell is on
+		@Override
+		protected ArrayList<Cell> initialValue() {
+			return new ArrayList<Cell>();
+		}
+	};
+
+	/**
+	 * The lists are all thrown out once more than this fraction of the cells were
+	 * born or died since the last reset.
+	 */
+	private static final double MAX_CHURN = 0.25;
+
+	/**
+	 * The cached information for a single cell.
+	 */
+	private static class Entry {
+		private final Cell cell;
+		private double anchorX; // where the cell was when the lists were last reset (or when it was born)
+		private double anchorY;
+		private final ArrayList<Cell> candidates = new ArrayList<Cell>(); // all cells that may be within reach
+		private boolean gathered = false; // false when the candidates need to be gathered again
+		private double reach; // the candidates include every cell within this distance
+
+		private Entry(Cell cell) {
+			this.cell = cell;
+			anchorX = cell.getX();
+			anchorY = cell.getY();
+		}
+	}
+
+	/**
+	 * Creates an empty neighbor list cache.
+	 *
+	 * @param petri the petri dish whose cells are cached
+	 * @param skin  the extra distance each list is gathered from; a larger skin
+	 *              means longer lists, but fewer resets
+	 * @throws IllegalArgumentException if the skin is not positive
+	 */
+	public NeighborListCache(PetriDish petri, double skin) {
+		if (skin <= 0)
+			throw new IllegalArgumentException("Cannot instantiate a NeighborListCache with a skin of " + skin + ".");
+
+		this.petri = petri;
+		this.skin = skin;
+		maxDriftSquared = (skin / 2) * (skin / 2);
+	}
+
+	/**
+	 * Records a cell that was just placed at the end of the petri dish's list of
+	 * cells, and slips it into the lists of any cells it could come in range of.
+	 *
+	 * @param c the new cell, already filed in the spatial grids
+	 */
+	public void cellAdded(Cell c) {
+		entries.add(new Entry(c));
+		churn++;
+
+		if (drifted) {
+			return; // the lists are all about to be thrown out
+		}
+
+		// a list needs the newborn if the newborn is within the list's reach plus two
+		// skins of the list owner's anchor; the owner is at most half a skin from its anchor
+		ArrayList<Cell> others = newbornScratch;
+		petri.gatherCellsInRange(c, maxReach + 2.5 * skin, others, gatherScratch.get());
+		for (int k = 0; k < others.size(); k++) {
+			Cell other = others.get(k);
+			Entry otherEntry = entries.get(other.getDishIndex());
+			double limit = otherEntry.reach + 2 * skin;
+			if (otherEntry.gathered && PetriDish.squaredDistanceBetween(otherEntry.anchorX, otherEntry.anchorY,
+					c.getX(), c.getY()) < limit * limit) {
+				otherEntry.candidates.add(c);
+			}
+		}
+		others.clear();
+	}
+
+	/**
+	 * Mirrors the petri dish's swap-remove: the entry at the given index is
+	 * replaced with the last entry, and the end is trimmed off.
+	 *
+	 * @param i the index of the cell that was removed
+	 */
+	public void cellRemoved(int i) {
+		entries.set(i, entries.get(entries.size() - 1));
+		entries.remove(entries.size() - 1);
+		churn++;
+	}
+
+	/**
+	 * Checks how far a cell has drifted from its anchor, and stops the cache from
+	 * being used until the next reset if it drifted too far. Cells which have not
+	 * been placed in the dish are ignored.
+	 *
+	 * @param c the cell that moved
+	 */
+	public void cellMoved(Cell c) {
+		int i = c.getDishIndex();
+		if (i < 0 || i >= entries.size() || entries.get(i).cell != c) {
+			return; // not placed yet
+		}
+		Entry e = entries.get(i);
+		if (PetriDish.squaredDistanceBetween(e.anchorX, e.anchorY, c.getX(), c.getY()) > maxDriftSquared) {
+			drifted = true;
+		}
+	}
+
+	/**
+	 * Called by the petri dish at the start of every tick. If any cell drifted too
+	 * far from its anchor, or too many cells were born or died since the last
+	 * reset, anchors every cell where it currently is and throws out every list.
+	 */
+	public void startTick() {
+		if (!drifted && churn <= MAX_CHURN * entries.size()) {
+			return;
+		}
+		for (Entry e : entries) {
+			e.anchorX = e.cell.getX();
+			e.anchorY = e.cell.getY();
+			e.candidates.clear();
+			e.gathered = false;
+		}
+		maxReach = 0;
+		drifted = false;
+		churn = 0;
+	}
+
+	/**
+	 * Fills in a neighborhood from the querying cell's cached list, gathering the
+	 * list first if it was thrown out or does not reach far enough anymore (e.g.
+	 * the cell's vision range grew). Does nothing if a cell has drifted too far
+	 * since the last reset.
+	 *
+	 * @param me           the querying cell
+	 * @param visionRange  the distance within which cells are visible
+	 * @param touchReach   the distance beyond which no cell can be touching me
+	 * @param neighborhood the empty neighborhood to fill in
+	 * @return true only if the neighborhood was filled in
+	 */
+	public boolean getNeighborhood(Cell me, double visionRange, double touchReach, Neighborhood neighborhood) {
+		if (drifted) {
+			return false; // the lists can't be trusted until the next reset
+		}
+		Entry e = entries.get(me.getDishIndex());
+
+		double reach = Math.max(visionRange, touchReach);
+		if (!e.gathered || reach > e.reach) {
+			e.candidates.clear();
+			petri.gatherCellsInRange(me, reach + 2 * skin, e.candidates, gatherScratch.get());
+			e.gathered = true;
+			e.reach = reach;
+			noteReach(reach);
+		}
+
+		// the exact checks, same as in SpatialGrid.getNeighborhood()
+		double visionRangeSquared = visionRange * visionRange;
+		for (int i = 0; i < e.candidates.size(); i++) {
+			Cell curr = e.candidates.get(i);
+			if (!curr.isAlive()) {
+				continue;
+			}
+			double distanceSquared = PetriDish.squaredDistanceBetween(curr.getX(), curr.getY(), me.getX(), me.getY());
+			if (distanceSquared < visionRangeSquared) {
+				neighborhood.getVisibleCells(curr.getSpeciesID()).add(curr);
+			}
+			double touchingDistance = me.getRadius() + curr.getRadius();
+			if (distanceSquared < touchingDistance * touchingDistance) {
+				neighborhood.getTouchedCells(curr.getSpeciesID()).add(curr);
+			}
+		}
+
+		neighborhood.sort(); // the lists may have been added to in any order
+		return true;
+	}
+
+	/**
+	 * Helper method to keep track of the largest reach gathered. Synchronized,
+	 * since cells may be gathering their lists on several threads at once.
+	 */
+	private synchronized void noteReach(double reach) {
+		maxReach = Math.max(maxReach, reach);
+	}
+
+}
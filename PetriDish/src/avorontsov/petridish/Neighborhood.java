@@ -0,0 +1,148 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.ArrayList;
+
+/**
+ * The result of a single neighborhood query on the petri dish, holding both the
+ * cells a given cell can see and the cells it is touching. Both views are
+ * gathered together in one pass over the nearby cells, and are grouped by
+ * species so that a behavior targeting one species only has to look at the
+ * members of that species. Every list holds its cells in the order they appear
+ * in the petri dish's list of cells.
+ *
+ * @author Andrey Vorontsov
+ */
+public class Neighborhood {
+
+	// cells closer than the vision range, centerpoint to centerpoint, by species ID (null until asked for)
+	private final ArrayList<ArrayList<Cell>> visibleCellsBySpecies;
+	// cells whose circle overlaps the querying cell's circle, by species ID (null until asked for)
+	private final ArrayList<ArrayList<Cell>> touchedCellsBySpecies;
+
+	// all species together, only put together if somebody asks for them
+	private final ArrayList<Cell> visibleCells;
+	private final ArrayList<Cell> touchedCells;
+	private boolean visibleCellsMerged = false;
+	private boolean touchedCellsMerged = false;
+
+	/**
+	 * Creates an empty neighborhood, to be filled in by the petri dish.
+	 */
+	public Neighborhood() {
+		visibleCellsBySpecies = new ArrayList<ArrayList<Cell>>();
+		touchedCellsBySpecies = new ArrayList<ArrayList<Cell>>();
+		visibleCells = new ArrayList<Cell>();
+		touchedCells = new ArrayList<Cell>();
+	}
+
+	/**
+	 * @param species the ID of the species to look up, from the SpeciesRegistry
+	 * @return the list of cells of that species visible to the querying cell,
+	 *         based on its vision range
+	 */
+	public ArrayList<Cell> getVisibleCells(int species) {
+		return listFor(visibleCellsBySpecies, species);
+	}
+
+	/**
+	 * @param species the ID of the species to look up, from the SpeciesRegistry
+	 * @return the list of cells of that species touching the querying cell
+	 */
+	public ArrayList<Cell> getTouchedCells(int species) {
+		return listFor(touchedCellsBySpecies, species);
+	}
+
+	/**
+	 * @return the list of cells of all species visible to the querying cell,
+	 *         based on its vision range
+	 */
+	public ArrayList<Cell> getVisibleCells() {
+		if (!visibleCellsMerged) {
+			merge(visibleCellsBySpecies, visibleCells);
+			visibleCellsMerged = true;
+		}
+		return visibleCells;
+	}
+
+	/**
+	 * @return the list of cells of all species touching the querying cell
+	 */
+	public ArrayList<Cell> getTouchedCells() {
+		if (!touchedCellsMerged) {
+			merge(touchedCellsBySpecies, touchedCells);
+			touchedCellsMerged = true;
+		}
+		return touchedCells;
+	}
+
+	/**
+	 * Empties every list, keeping their storage, so that the neighborhood can be
+	 * filled in again for another cell.
+	 */
+	void clear() {
+		for (ArrayList<Cell> species : visibleCellsBySpecies) {
+			if (species != null) {
+				species.clear();
+			}
+		}
+		for (ArrayList<Cell> species : touchedCellsBySpecies) {
+			if (species != null) {
+				species.clear();
+			}
+		}
+		visibleCells.clear();
+		touchedCells.clear();
+		visibleCellsMerged = false;
+		touchedCellsMerged = false;
+	}
+
+	/**
+	 * Puts every species' lists in the order of the petri dish's list of cells,
+	 * for when they were filled in out of order.
+	 */
+	void sort() {
+		for (ArrayList<Cell> species : visibleCellsBySpecies) {
+			if (species != null) {
+				species.sort(SpatialGrid.DISH_ORDER);
+			}
+		}
+		for (ArrayList<Cell> species : touchedCellsBySpecies) {
+			if (species != null) {
+				species.sort(SpatialGrid.DISH_ORDER);
+			}
+		}
+	}
+
+	/**
+	 * Helper method to fetch the list for a species, creating an empty one the
+	 * first time the species is asked for.
+	 */
+	private static ArrayList<Cell> listFor(ArrayList<ArrayList<Cell>> bySpecies, int species) {
+		while (bySpecies.size() <= species) {
+			bySpecies.add(null);
+		}
+		ArrayList<Cell> cells = bySpecies.get(species);
+		if (cells == null) {
+			cells = new ArrayList<Cell>();
+			bySpecies.set(species, cells);
+		}
+		return cells;
+	}
+
+	/**
+	 * Helper method to put the lists for every species together into one list, in
+	 * the order of the petri dish's list of cells.
+	 */
+	private static void merge(ArrayList<ArrayList<Cell>> bySpecies, ArrayList<Cell> allSpecies) {
+		allSpecies.clear();
+		for (ArrayList<Cell> species : bySpecies) {
+			if (species != null) {
+				allSpecies.addAll(species);
+			}
+		}
+		allSpecies.sort(SpatialGrid.DISH_ORDER);
+	}
+
+}
@@ -0,0 +1,60 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the cells produced while a cell is updated (offspring, agars dropped
+ * at death, etc.), to be placed in the petri dish once the update is done. The
+ * petri dish owns the sink and empties it for every update, so the same
+ * storage is reused over and over rather than every update handing back lists
+ * of its own.
+ *
+ * @author Andrey Vorontsov
+ */
+public class OffspringSink {
+
+	private final ArrayList<Cell> cells = new ArrayList<Cell>();
+
+	/**
+	 * @param c a newly created cell, to be placed in the petri dish
+	 */
+	public void add(Cell c) {
+		cells.add(c);
+	}
+
+	/**
+	 * @param i an index, from 0 to size() - 1
+	 * @return the cell at that index, in the order they were added
+	 */
+	public Cell get(int i) {
+		return cells.get(i);
+	}
+
+	/**
+	 * @return the number of cells collected since the sink was last emptied
+	 */
+	public int size() {
+		return cells.size();
+	}
+
+	/**
+	 * Used for status messages, e.g. to list the offspring a behavior produced.
+	 *
+	 * @param from the number of cells that were collected before
+	 * @return a view of the cells collected since then
+	 */
+	public List<Cell> since(int from) {
+		return cells.subList(from, cells.size());
+	}
+
+	/**
+	 * Empties the sink, keeping its storage for the next update.
+	 */
+	public void clear() {
+		cells.clear();
+	}
+
+}
@@ -2,18 +2,27 @@ package avorontsov.petridish;
 
 import avorontsov.cells.*;
 
-import javafx.application.Platform;
-import javafx.collections.ObservableList;
-import javafx.scene.Node;
 import java.util.Random;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
 
 /**
- * This class is instantiated by PetriDishApp and immediately starts its own
- * thread in parallel to the JavaFX GUI thread. On this thread, the petri dish
- * simulation is run and graphics information from the simulation is sent to the
- * GUI thread via Platform.runLater(). In addition, this class includes a
- * handful of helper methods used internally by the simulation.
+ * The petri dish simulation itself, with no ties to the GUI or to any graphics
+ * library. A petri dish is created from a SimulationConfig, which it fills
+ * with its starting population, and from then on it only moves when asked to:
+ * step() runs a single tick, step(int) runs several, and runUntil() keeps
+ * going until some condition holds. The ticks run on the calling thread (or
+ * on the tick pool, if the config asks for one) as fast as they can; pacing
+ * them is up to the caller.
+ * 
+ * PetriDishRunner drives a petri dish for the GUI, on a clock of its own,
+ * having it draw the cells into a frame as it goes; HeadlessPetriDish drives
+ * one from the command line. A petri dish is not thread safe, so only one
+ * thread may drive it. In addition, this class includes a handful of helper
+ * methods used internally by the simulation.
  * 
  * TODO as a temporary feature, this class contains a hardcoded debug preset
  * (creating cells at the start of the simulation) as well as code to create
@@ -22,241 +31,534 @@ import java.util.ArrayList;
  * 
  * @author Andrey Vorontsov
  */
-public class PetriDish implements Runnable {
-
-	// timers and stuff used to track performance
-	long framesPerSecond; // initialized only after first simulation loop completes
-	long simulationCycleDelta;
-	long graphicsCycleDelta = 0; // a sentinel value. in any case the simulation thread waits for the graphics
-									// thread to complete its work, at which time it updates this value
-	private boolean waitingForGraphics; // set to true when the simulation thread asks for a frame to be drawn; once the
-										// graphics frame is done, set to false
+public class PetriDish {
 
-	private boolean done = false; // true only when the simulation thread must be stopped
-	private PetriDishApp app; // refers to the application thread - aka the graphics thread, used to retrieve
-								// the scene graph root that graphics information is built upon
+	private int[] palette = new int[0]; // the color of every species seen, as 0xAARRGGBB, by species ID
+	private volatile int agarFeedFactor; // up to this much agar is added every tick, may be changed at any time
+	private final int seed; // the seed the dish's random stream was started with
 
-	private Random rng = new Random(); // used for random behavior of the simulation; if set to use a specific seed,
-										// the resulting simulation will be identical every time TODO configurable
+	private Random rng; // the dish's own random stream, which every cell's stream is ultimately split off; the
+						// same seed gives the same simulation every time, however many threads update it
 
 	private ArrayList<Cell> allCells = new ArrayList<Cell>(); // contains all the single-celled organisms inhabiting the
 																// petri dish
-	private ArrayList<Node> graphicsToDraw = new ArrayList<Node>(); // populated by the simulation thread at the end of every update
-																		// contains graphics objects produced from every cell
+	private CellStore cellStore; // holds the position, velocity, mass and energy of every cell, placed cells in
+									// the same order as allCells
+	private ArrayList<SpatialGrid> speciesGrids = new ArrayList<SpatialGrid>(); // indexes allCells by species and
+										// location to speed up range queries; by species ID, null for absent species
+	private double spatialGridBucketSize; // the coarsest bucket size of all the species grids, chosen with the
+											// initial population
+	private CooldownWheel cooldownWheel = new CooldownWheel(); // ends the cells' behavior cooldowns on time
+	private NeighborListCache neighborListCache; // optional, reuses each cell's neighbors across ticks; null if
+													// turned off
+	private ForkJoinPool tickPool; // optional, splits the cells' updates among several threads; null if every
+									// phase runs on the thread stepping the dish
+	
+	// used when updating in phases
+	private final ArrayList<Neighborhood> sensedNeighborhoods = new ArrayList<Neighborhood>(); // what each cell
+										// sensed this tick, by index in allCells
+	private final TickIntents intents = new TickIntents(); // what the cells mean to do to each other this tick
+	private boolean acting = false; // true only while the cells act, whether on the tick pool's threads or not
+	private final ThreadLocal<CellStore> nurseries = new ThreadLocal<CellStore>() { // where cells born on each
+										// thread are kept until they are placed
+		@Override
+		protected CellStore initialValue() {
+			return new CellStore();
+		}
+	};
+	private int tileCount = 0; // the cells act tile by tile; see sortIntoTiles()
+	private int[] cellTiles = new int[0]; // the tile of every cell, by index in allCells, -1 for dead cells
+	private int[] tileCells = new int[0]; // the index of every living cell, grouped by tile
+	private int[] tileStarts = new int[0]; // where each tile's cells start in tileCells, plus where the last ends
+	private int[] tileCursors = new int[0]; // used while filling in tileCells
+	private final ArrayList<OffspringSink> tileSinks = new ArrayList<OffspringSink>(); // the newborns of each tile
 
 	// the dimensions of this simulation petri dish are fixed at instantiation time
 	private final int simulationWidth;
 	private final int simulationHeight;
+
+	// the coarsest spatial grid buckets are sized to the largest vision range in the starting population, but no
+	// smaller than this
+	private static final double MIN_SPATIAL_GRID_BUCKET_SIZE = 50;
+	// the finest spatial grid buckets are sized for touch checks between small cells
+	private static final double FINEST_SPATIAL_GRID_BUCKET_SIZE = 16;
+	// when updating in phases, each thread takes the cells in runs of (at most) this many, or a whole tile
+	private static final int TICK_BATCH_SIZE = 64;
 	
 	/**
-	 * Starts the petri dish simulation thread.
+	 * Creates a petri dish and fills it with its starting population. The dish
+	 * does nothing more until it is stepped.
 	 * 
-	 * @param app a reference to the GUI thread to enable graphics output from this
-	 *            thread
+	 * @param config the size of the dish, its starting population, the
+	 *               performance options and the seed
 	 */
-	public PetriDish(PetriDishApp app) {
-		this.app = app;
+	public PetriDish(SimulationConfig config) {
+		simulationWidth = config.getWidth();
+		simulationHeight = config.getHeight();
+		agarFeedFactor = config.getAgarFeedFactor();
+		
+		cellStore = new CellStore();
+		
+		if (config.getNeighborListSkin() > 0) { // a skin of 0 turns the cache off
+			neighborListCache = new NeighborListCache(this, config.getNeighborListSkin());
+		}
 		
-		simulationWidth = app.newSimulationWidth.get();
-		simulationHeight = app.newSimulationHeight.get();
+		if (config.getTickThreads() > 0) { // 0 runs the same phases on the thread stepping the dish
+			tickPool = new ForkJoinPool(config.getTickThreads());
+		}
+		
+		int seed = config.getSeed();
+		if (seed == 0) { // no seed given, so make one up (one that can be typed back in)
+			seed = new Random().nextInt(Integer.MAX_VALUE) + 1;
+		}
+		this.seed = seed;
+		rng = new SplitRandom(seed);
 		
-		new Thread(this).start();
+		setupSimulation(config); // spawns cells to start off the simulation (TODO this for debug)
+	}
+
+	/**
+	 * Runs a single tick of the simulation.
+	 */
+	public void step() {
+		step(null);
+	}
+
+	/**
+	 * Runs several ticks of the simulation, one after another.
+	 * 
+	 * @param ticks the number of ticks to run
+	 */
+	public void step(int ticks) {
+		for (int i = 0; i < ticks; i++) {
+			step(null);
+		}
 	}
 
 	/**
-	 * The primary simulation loop, controlled from the GUI thread. Sends regular
-	 * requests to the GUI thread to redraw the contents of the petri dish.
+	 * Runs ticks of the simulation until a condition holds. The condition is
+	 * checked before every tick, so nothing is run if it holds already.
 	 * 
-	 * @see java.lang.Runnable#run()
+	 * @param condition checked against this petri dish before every tick
+	 * @param maxTicks  the most ticks to run, in case the condition never holds
+	 * @return the number of ticks run
 	 */
-	@Override
-	public void run() {
+	public long runUntil(Predicate<PetriDish> condition, long maxTicks) {
+		long ticks = 0;
+		while (ticks < maxTicks && !condition.test(this)) {
+			step(null);
+			ticks++;
+		}
+		return ticks;
+	}
 
-		setupSimulation(); // spawns cells to start off the simulation (TODO this for debug)
+	/**
+	 * Runs a single tick of the simulation, drawing every cell into a frame as
+	 * it goes. The frame is left for the caller to stamp.
+	 * 
+	 * @param frame the frame to draw the cells in, already reset, or null if no
+	 *              frame is built this tick (the cells' appearance is refreshed
+	 *              anyway)
+	 */
+	void step(Frame frame) {
 		
-		// main simulation loop (labeled)
-		main:
-		do {
-
-			// set timers for this cycle
-			long cycleStartTime = System.nanoTime();
-			waitingForGraphics = true;
-
-			// this request is sent to the graphics thread and runs in parallel to this
-			// thread; thus, the graphics thread draws the previous tick while the
-			// simulation prepares the next tick.
-			Platform.runLater(new Runnable() {
-
-				@Override
-				public void run() {
-					
-					app.updateFrameRateDisplay(framesPerSecond); // before we draw the simulation itself, send the frame rate information from the last update
-
-					ObservableList<Node> allNodes = app.getPetriRoot().getChildren(); // fetch the graphics list
-					
-					allNodes.setAll(graphicsToDraw); // replace the old list with a fresh new list of graphics
-					
-					// placing the graphics in allNodes assigns them all to be children of the petri window's root
-					// so the scene graph looks like the root, with a couple hundred direct children (tree height = 1)
-
-					graphicsCycleDelta = System.nanoTime() - cycleStartTime; // stop this thread's work timer
-					waitingForGraphics = false; // graphics thread finished its work. simulation thread can continue
-												// once it is also finished
-				}
+		cooldownWheel.advance(); // the behaviors whose cooldowns ran out can be used again this tick
+		
+		if (neighborListCache != null) {
+			neighborListCache.startTick(); // throw out the neighbor lists if cells drifted too far
+		}
 
-			}); // end of code for the graphics thread
-			
-			// start of code for simulation thread
-			
-			ArrayList<Node> newGraphicsToDraw = new ArrayList<Node>(); // to avoid concurrent modification; the simulation thread loads graphics into a temporary list, then shallow copies it to allow the graphics thread to use it on the next cycle
-
-			// run the simulation by asking all the living cells to take their turns
-
-			for (int i = 0; i < allCells.size(); i++) {
-				
-				// before updating the cell, consult GUI state info and take any necessary action
-				
-				// if the simulation has been paused by the user since we last checked, put the loop on hold until we get unpaused
-				// this delays the completion of this cycle until unpaused and generates a warning message
-				while (app.simulationPaused.get()) {
-					if (done) {
-						break main; // oh, we're 100% finished
-					}
-					try {
-						Thread.sleep(20);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-				if (done) {
-					break main; // oh, we're 100% finished
-				}
-				
-				// update the cell
-
-				// verify the cell is living before updating it
-				if (allCells.get(i).isAlive()) {
-
-					// for each update, the cell is given lists of visible and touched cells
-					// also given the opportunity to return a reference to a single new offspring
-
-					ArrayList<Cell> newCells = allCells.get(i)
-							.update(getCellsInRange(allCells.get(i), allCells.get(i).getScaledVisionRange()),
-									getTouchingCells(allCells.get(i)));
-					
-					// after updating, save the refreshed graphic
-					newGraphicsToDraw.add(allCells.get(i).getGraphic());
-					
-					if (newCells != null) {
-						allCells.addAll(newCells); // if an offspring was produced the allCells list grows in size. note
-												// that newborn cells are updated on the same cycle they are born
-					}
-
-				} else { // if a cell died, the allCells list shrinks in size
-					// note that order of the allCells list doesn't matter; so rather than running
-					// O(n) remove(), we can do a O(1) swap with the last entry
-
-					allCells.set(i, allCells.get(allCells.size() - 1)); // swap with the end
-					allCells.remove(allCells.size() - 1); // trim off the end
-					i--; // remember to update the swapped element too
-					// note that for the last element, the call to set() does nothing
-				}
-				
-				// done updating this cell
-
-			} // finished updating all petri dish inhabitants and saving copies of their graphics
-
-			divineIntervention(); // make any changes to the simulation that do not follow from the cells' own actions
-			// any magically summoned cells aren't drawn until the next cycle, which is fine I reckon (they don't get updated either)
-			
-			graphicsToDraw = newGraphicsToDraw; // prepare the graphicsToDraw list for the next cycle
-
-			// stop this thread's work timer
-			simulationCycleDelta = System.nanoTime() - cycleStartTime;
-			
-			// end of code for the simulation thread
-			
-			// the rest of this code is run on the simulation thread and should be kept brief
-
-			// wait for the graphics thread to catch up if needed
-			while (waitingForGraphics) {
-				try {
-					Thread.sleep(0, 100); // presumably waits for 100 nanoseconds; in reality, Windows granularity means
-											// we only have ~1 ms precision
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+		// run the simulation by asking all the living cells to take their turns, in phases
+		phasedTick(frame);
+
+		divineIntervention(); // make any changes to the simulation that do not follow from the cells' own actions
+		// any magically summoned cells aren't drawn until the next cycle, which is fine I reckon (they don't get updated either)
+	}
+
+	/**
+	 * Draws every cell into a frame where it stands, without running a tick. Used
+	 * for the first frame of a simulation.
+	 * 
+	 * @param frame the frame to draw the cells in, already reset
+	 */
+	void drawInto(Frame frame) {
+		for (int i = 0; i < allCells.size(); i++) {
+			addToFrame(frame, allCells.get(i));
+		}
+	}
+	
+	/**
+	 * Helper method to refresh a cell's appearance and put it in a frame, along
+	 * with how far the cell moved since it started its last update. The first
+	 * member of a species to be drawn puts the species' color in the palette.
+	 * 
+	 * @param frame the frame to add to, or null if no frame is built this tick
+	 *              (the cell's appearance is refreshed anyway)
+	 * @param c     the cell
+	 */
+	private void addToFrame(Frame frame, Cell c) {
+		c.refreshAppearance();
+		if (frame == null) {
+			return;
+		}
+		int speciesID = c.getSpeciesID();
+		if (speciesID >= palette.length) {
+			palette = Arrays.copyOf(palette, speciesID + 1);
+		}
+		if (palette[speciesID] == 0) {
+			palette[speciesID] = c.getColor();
+		}
+		frame.add(c.cellID, c.getX(), c.getY(), c.getPreviousX() - c.getX(), c.getPreviousY() - c.getY(),
+				c.getDrawnRadius(), c.getShape(), speciesID);
+	}
+	
+	/**
+	 * Helper method to run a single tick in phases. The phases run on the tick
+	 * pool's threads if there is a tick pool, or else one after another on the
+	 * thread stepping the dish; either way the outcome is exactly the same, so a
+	 * seed gives the same run whatever the number of threads.
+	 * 
+	 * 1. Every cell senses its neighborhood and chooses what to do, all against
+	 * the dish as it stood at the start of the tick. Sensing changes nothing, so
+	 * the cells are simply split among the tick pool's threads, if any.
+	 * 
+	 * 2. The cells are sorted into square tiles by location, and the tiles are
+	 * split among the threads, if any. Every cell enacts its choice. Whatever a cell does
+	 * to itself happens on the spot, but eating and nibbling are only written
+	 * down as intents, and carried out afterwards on the simulation thread
+	 * (settling who gets any target wanted by several cells).
+	 * 
+	 * 3. Likewise, tile by tile, every cell that is still alive finishes its
+	 * update, and any pushing is written down and carried out afterwards.
+	 * 
+	 * While the cells act, nobody writes to another cell, the spatial grids are
+	 * left alone (every cell is refiled at the end) and newborns are kept in the
+	 * acting thread's own cell store, so cells at the edge of a tile need no
+	 * special care even though their neighborhoods reach into the next tile.
+	 * 
+	 * Dead cells are only cleared out once everybody is done, and newborns are
+	 * placed at the very end, tile by tile, without being updated until the next
+	 * tick.
+	 * 
+	 * @param frame the frame to draw the cells in, or null if no frame is built
+	 *              this tick
+	 */
+	private void phasedTick(Frame frame) {
+		int cellCount = allCells.size(); // cells placed during this tick are left alone
+		while (sensedNeighborhoods.size() < cellCount) {
+			sensedNeighborhoods.add(new Neighborhood());
+		}
+		
+		// sense phase
+		if (tickPool != null) {
+			tickPool.invoke(new SensePhase(0, cellCount));
+		} else {
+			sense(0, cellCount);
+		}
+		
+		// act phase, carrying out the orders
+		sortIntoTiles(cellCount);
+		intents.reset(cellCount);
+		acting = true;
+		if (tickPool != null) {
+			tickPool.invoke(new ActPhase(0, tileCount, false));
+		} else {
+			act(0, tileCount, false);
+		}
+		acting = false;
+		intents.resolveMeals();
+		
+		// act phase, finishing the updates
+		acting = true;
+		if (tickPool != null) {
+			tickPool.invoke(new ActPhase(0, tileCount, true));
+		} else {
+			act(0, tileCount, true);
+		}
+		acting = false;
+		intents.resolveSquishes();
+		
+		for (int i = 0; i < cellCount; i++) {
+			Cell c = allCells.get(i);
+			if (c.isAlive()) {
+				addToFrame(frame, c);
+				updateSpatialIndex(c); // the cell moved, and its appearance may have changed its radius
+			}
+		}
+		
+		// clear out the dead, then place the newborns
+		for (int i = 0; i < allCells.size(); i++) {
+			if (!allCells.get(i).isAlive()) {
+				removeCell(i); // swap with the end and trim off the end
+				i--; // remember to check the swapped element too
+			}
+		}
+		for (int tile = 0; tile < tileCount; tile++) {
+			OffspringSink tileOffspring = tileSinks.get(tile);
+			for (int i = 0; i < tileOffspring.size(); i++) {
+				Cell c = tileOffspring.get(i);
+				addCell(c);
+				addToFrame(frame, c);
+				updateSpatialIndex(c); // its appearance sets the newborn's radius
+			}
+			tileOffspring.clear();
+		}
+	}
+	
+	/**
+	 * Helper method to sort the living cells into square tiles the size of the
+	 * coarsest spatial grid buckets, by their location at the start of the tick.
+	 * The tiles are counted off row by row, and each tile keeps its cells in the
+	 * order of allCells. The tiles don't depend on the number of threads, so
+	 * neither does the order the newborns are placed in.
+	 * 
+	 * @param cellCount the number of cells to sort
+	 */
+	private void sortIntoTiles(int cellCount) {
+		int tileColumns = Math.max(1, (int) Math.ceil(simulationWidth / spatialGridBucketSize));
+		int tileRows = Math.max(1, (int) Math.ceil(simulationHeight / spatialGridBucketSize));
+		tileCount = tileColumns * tileRows;
+		
+		if (tileStarts.length < tileCount + 1) {
+			tileStarts = new int[tileCount + 1];
+			tileCursors = new int[tileCount + 1];
+		}
+		if (cellTiles.length < cellCount) {
+			cellTiles = new int[Math.max(cellCount, cellTiles.length * 2)];
+			tileCells = new int[cellTiles.length];
+		}
+		while (tileSinks.size() < tileCount) {
+			tileSinks.add(new OffspringSink());
+		}
+		
+		// count the cells in every tile (dead cells are left out)
+		Arrays.fill(tileStarts, 0, tileCount + 1, 0);
+		for (int i = 0; i < cellCount; i++) {
+			Cell c = allCells.get(i);
+			if (!c.isAlive()) {
+				cellTiles[i] = -1;
+				continue;
+			}
+			int column = Math.min(tileColumns - 1, Math.max(0, (int) (c.getX() / spatialGridBucketSize)));
+			int row = Math.min(tileRows - 1, Math.max(0, (int) (c.getY() / spatialGridBucketSize)));
+			cellTiles[i] = column + row * tileColumns;
+			tileStarts[cellTiles[i] + 1]++;
+		}
+		
+		// each tile starts where the tiles before it end
+		for (int tile = 0; tile < tileCount; tile++) {
+			tileStarts[tile + 1] += tileStarts[tile];
+		}
+		
+		// file every cell, in order, using the end of each tile's filled part as a cursor
+		System.arraycopy(tileStarts, 0, tileCursors, 0, tileCount);
+		for (int i = 0; i < cellCount; i++) {
+			if (cellTiles[i] != -1) {
+				tileCells[tileCursors[cellTiles[i]]++] = i;
 			}
-			
-			// now both threads are finished and have reported their delta time
+		}
+	}
+	
+	/**
+	 * The sense phase of a tick, for a run of cells in allCells. Runs too long
+	 * for one thread are split in half, and the halves are sensed in parallel.
+	 */
+	private class SensePhase extends RecursiveAction {
 
-			// calculate how much time we have left after our threads finish
-			long timeRemainingNanos;
+		private static final long serialVersionUID = 1L;
 
-			if (graphicsCycleDelta > simulationCycleDelta) { // program is bottlenecked by graphics thread
-				timeRemainingNanos = app.simulationDelay.get() * 1000000 - graphicsCycleDelta;
-				if (timeRemainingNanos < -1000000) { // at least 1 ms has been lost, warning
-					System.out.println("WARNING: The graphics thread is lagging. Lost "
-							+ (-1 * timeRemainingNanos) / 1000000 + " milliseconds."); // accurate to within 1 ms
-				}
+		private final int from; // the first cell of the run
+		private final int to; // one past the last cell of the run
 
-			} else { // program is bottlenecked by simulation thread
-				timeRemainingNanos = app.simulationDelay.get() * 1000000 - simulationCycleDelta;
-				if (timeRemainingNanos < -1000000) { // at least 1 ms has been lost, warning
-					System.out.println("WARNING: The simulation thread is lagging. Lost "
-							+ (-1 * timeRemainingNanos) / 1000000 + " milliseconds."); // accurate to within 1 ms
-				}
+		private SensePhase(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > TICK_BATCH_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SensePhase(from, middle), new SensePhase(middle, to));
+				return;
 			}
+			sense(from, to);
+		}
+	}
+	
+	/**
+	 * One half of the act phase of a tick, for a run of tiles. Runs holding too
+	 * many cells for one thread are split in half, and the halves are run in
+	 * parallel; a single tile is never split.
+	 */
+	private class ActPhase extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from; // the first tile of the run
+		private final int to; // one past the last tile of the run
+		private final boolean finishing; // false to enact the orders, true to finish the updates
+
+		private ActPhase(int from, int to, boolean finishing) {
+			this.from = from;
+			this.to = to;
+			this.finishing = finishing;
+		}
 
-			// if any time remains, sleep until it's time to start working on the next cycle
-			long timeRemainingMillis = timeRemainingNanos / 1000000; // java rounds down, but <1 ms precision is
-																		// retained
-			if (timeRemainingMillis > 0) {
-				try {
-					Thread.sleep(timeRemainingMillis);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+		@Override
+		protected void compute() {
+			if (to - from > 1 && tileStarts[to] - tileStarts[from] > TICK_BATCH_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ActPhase(from, middle, finishing), new ActPhase(middle, to, finishing));
+				return;
+			}
+			act(from, to, finishing);
+		}
+	}
+
+	/**
+	 * Helper method for the sense phase of a tick: a run of cells sense their
+	 * neighborhoods.
+	 * 
+	 * @param from the first cell of the run
+	 * @param to   one past the last cell of the run
+	 */
+	private void sense(int from, int to) {
+		for (int i = from; i < to; i++) {
+			Cell c = allCells.get(i);
+			Neighborhood neighborhood = sensedNeighborhoods.get(i);
+			if (c.isAlive()) {
+				c.sense(getNeighborhood(c, neighborhood));
+			} else {
+				neighborhood.clear(); // don't hold on to anybody
+			}
+		}
+	}
+
+	/**
+	 * Helper method for the act phase of a tick: the cells of a run of tiles
+	 * enact their orders, or finish their updates.
+	 * 
+	 * @param from      the first tile of the run
+	 * @param to        one past the last tile of the run
+	 * @param finishing false to enact the orders, true to finish the updates
+	 */
+	private void act(int from, int to, boolean finishing) {
+		for (int tile = from; tile < to; tile++) {
+			OffspringSink tileOffspring = tileSinks.get(tile);
+			for (int k = tileStarts[tile]; k < tileStarts[tile + 1]; k++) {
+				int i = tileCells[k];
+				Cell c = allCells.get(i);
+				if (!c.isAlive()) {
+					continue; // eaten before it could finish
+				}
+				if (finishing) {
+					c.finishUpdate(sensedNeighborhoods.get(i), tileOffspring);
+				} else {
+					c.enact(sensedNeighborhoods.get(i), tileOffspring);
 				}
 			}
-			
-			// finally, calculate the true time we spent on this cycle
-			// max of the minimum time and the actual times spent by each thread
-			long thisCycleDelta = Math.max(app.simulationDelay.get() * 1000000, Math.max(simulationCycleDelta, graphicsCycleDelta)); // the real time elapsed
-			
-			framesPerSecond = 1000000000/thisCycleDelta;
-			
-		} while (!done); // check if we have gotten an order to stop since the last tick
+		}
 	}
 	
 	/**
 	 * Helper method to set up the petri dish simulation. Creates assorted single-celled life.
+	 * 
+	 * @param config the starting population of each species
 	 */
-	private void setupSimulation() {
+	private void setupSimulation(SimulationConfig config) {
+		
+		ArrayList<Cell> initialCells = new ArrayList<Cell>();
 		
 		// set up simulation debug preset TODO
-		for (int i = 0; i < app.newSimulationGrazerPop.get(); i++) { // a herd of herbivores, to the left
-			allCells.add(new Grazer(this, rng, simulationWidth / 4 + rng.nextInt(100) - 50,
+		for (int i = 0; i < config.getGrazerPop(); i++) { // a herd of herbivores, to the left
+			initialCells.add(new Grazer(this, rng, simulationWidth / 4 + rng.nextInt(100) - 50,
 					simulationHeight / 2 + rng.nextInt(100) - 50, 0, 0, 50));
 		}
-		for (int i = 0; i < app.newSimulationPredPop.get(); i++) { // a herd of predators, to the right
-			allCells.add(new Predator(this, rng, simulationWidth * 3 / 4 + rng.nextInt(100) - 50,
+		for (int i = 0; i < config.getPredPop(); i++) { // a herd of predators, to the right
+			initialCells.add(new Predator(this, rng, simulationWidth * 3 / 4 + rng.nextInt(100) - 50,
 					simulationHeight / 2 + rng.nextInt(100) - 50, 0, 0, 100));
 		}
-		for (int i = 0; i < app.newSimulationAgarPop.get(); i++) { // scatter some food to start
-			allCells.add(new Agar(this, rng,
+		for (int i = 0; i < config.getAgarPop(); i++) { // scatter some food to start
+			initialCells.add(new Agar(this, rng,
 					rng.nextInt((simulationWidth - 29)) + 15,
 					rng.nextInt((simulationHeight - 29)) + 15, 0, 0, 35));
 		}
-		for (int i = 0; i < app.newSimulationPlantPop.get(); i++) { // plants at totally random locations
-			allCells.add(new Plant(this, rng, rng.nextInt((simulationWidth - 29)) + 15,
+		for (int i = 0; i < config.getPlantPop(); i++) { // plants at totally random locations
+			initialCells.add(new Plant(this, rng, rng.nextInt((simulationWidth - 29)) + 15,
 					rng.nextInt((simulationHeight - 29)) + 15, 0, 0, 100));
 		}
 
-		// fill the graphics list for initial setup
-		for (Cell c: allCells) {
-			graphicsToDraw.add(c.getGraphic());
+		// size the spatial grids' coarsest buckets to the largest vision range around, so
+		// even the largest range queries only have to look at the few buckets next to
+		// the querying cell
+		spatialGridBucketSize = MIN_SPATIAL_GRID_BUCKET_SIZE;
+		for (Cell c : initialCells) {
+			spatialGridBucketSize = Math.max(spatialGridBucketSize, c.getScaledVisionRange());
 		}
 
+		// set each cell's radius, then place the cells
+		for (Cell c: initialCells) {
+			c.refreshAppearance();
+			addCell(c);
+		}
+
+	}
+	
+	/**
+	 * Helper method to place a cell in the petri dish. The cell is added to the
+	 * end of the list of cells and filed in the spatial grid for its species (the
+	 * first member of a species gets a new grid). Its slot in the cell store is
+	 * swapped to match its place in the list, if some other newborn got the slot
+	 * first.
+	 * 
+	 * @param c the new cell
+	 */
+	private void addCell(Cell c) {
+		c.moveToStore(cellStore); // in case it was born while the cells were acting
+		cellStore.swap(c.getStoreSlot(), allCells.size());
+		c.setDishIndex(allCells.size());
+		allCells.add(c);
+		
+		SpatialGrid grid = getSpeciesGrid(c.getSpeciesID());
+		if (grid == null) {
+			grid = new SpatialGrid(simulationWidth, simulationHeight, FINEST_SPATIAL_GRID_BUCKET_SIZE,
+					spatialGridBucketSize);
+			while (speciesGrids.size() <= c.getSpeciesID()) {
+				speciesGrids.add(null);
+			}
+			speciesGrids.set(c.getSpeciesID(), grid);
+		}
+		grid.insert(c);
+		
+		if (neighborListCache != null) {
+			neighborListCache.cellAdded(c);
+		}
+	}
+	
+	/**
+	 * Helper method to take a cell out of the petri dish. Since the order of the
+	 * list of cells doesn't matter, rather than running O(n) remove(), we do a
+	 * O(1) swap with the last entry and trim off the end.
+	 * 
+	 * @param i the index of the cell to remove
+	 */
+	private void removeCell(int i) {
+		speciesGrids.get(allCells.get(i).getSpeciesID()).remove(allCells.get(i));
+		if (neighborListCache != null) {
+			neighborListCache.cellRemoved(i);
+		}
+		
+		// mirror the swap in the cell store; the dead cell's slot ends up last among the
+		// placed cells, so that any newborns that were not placed yet stay after them
+		cellStore.swap(i, allCells.size() - 1);
+		cellStore.remove(allCells.size() - 1);
+		
+		Cell last = allCells.get(allCells.size() - 1);
+		allCells.set(i, last); // swap with the end
+		last.setDishIndex(i);
+		allCells.remove(allCells.size() - 1); // trim off the end
+		// note that for the last element, the call to set() does nothing
 	}
 	
 	/**
@@ -264,8 +566,8 @@ public class PetriDish implements Runnable {
 	 */
 	private void divineIntervention() {
 		
-		for (int i=0; i<rng.nextInt(app.runningAgarFeedFactor.get() + 1); i++) {
-			allCells.add(new Agar(this, rng, rng.nextInt((int) (simulationWidth - 29)) + 15,
+		for (int i=0; i<rng.nextInt(agarFeedFactor + 1); i++) {
+			addCell(new Agar(this, rng, rng.nextInt((int) (simulationWidth - 29)) + 15,
 					rng.nextInt((int) (simulationHeight - 29)) + 15, 0, 0, 35));
 		}
 //		if (rng.nextInt(1000) == 1) {
@@ -294,20 +596,37 @@ public class PetriDish implements Runnable {
 			return new ArrayList<Cell>();
 		}
 
+		// a cell is in my range iff it is closer than the max distance, it is alive,
+		// and it is not myself; the spatial grids only check the cells near me
 		ArrayList<Cell> visibleCells = new ArrayList<Cell>();
-		for (int i = 0; i < allCells.size(); i++) {
-			Cell curr = allCells.get(i);
-			if (distanceBetween(curr.getX(), curr.getY(), me.getX(), me.getY()) < maxDistance
-					&& curr.isAlive()
-					&& !curr.equals(me)) { // a cell is in my range iff it is closer than the max distance, it is alive,
-											// and it is not myself
-
-				visibleCells.add(curr);
-			} 
+		for (SpatialGrid grid : speciesGrids) {
+			if (grid != null) {
+				visibleCells.addAll(grid.getCellsInRange(me, maxDistance));
+			}
 		}
+		visibleCells.sort(SpatialGrid.DISH_ORDER);
 		return visibleCells;
 	}
 
+	/**
+	 * Same as getCellsInRange(), but adds the cells in range to a list the caller
+	 * already has, using the spatial grids' neighborhood search so that nothing is
+	 * allocated beyond what the lists may need to grow.
+	 * 
+	 * @param me          the querying cell
+	 * @param maxDistance the distance to search within
+	 * @param inRange     the list to add the cells in range to
+	 * @param scratch     an empty list to use while searching; left empty
+	 */
+	void gatherCellsInRange(Cell me, double maxDistance, ArrayList<Cell> inRange, ArrayList<Cell> scratch) {
+		for (SpatialGrid grid : speciesGrids) {
+			if (grid != null) {
+				grid.getNeighborhood(me, maxDistance, inRange, scratch); // only the cells in range are kept
+				scratch.clear();
+			}
+		}
+	}
+
 	/**
 	 * A similar method to getCellsInRange(); however, this method takes into
 	 * account the radii of both the querying cell and the other cells to judge
@@ -319,31 +638,189 @@ public class PetriDish implements Runnable {
 	 * @return a list of cells touching this cell
 	 */
 	public ArrayList<Cell> getTouchingCells(Cell me) {
+		// a cell is touching me iff it is closer than the sum of our radii, it is
+		// alive, and it is not myself; the spatial grids only check the cells near me
 		ArrayList<Cell> touchedCells = new ArrayList<Cell>();
-		for (int i = 0; i < allCells.size(); i++) {
-			Cell curr = allCells.get(i);
-			if (distanceBetween(curr.getX(), curr.getY(), me.getX(), me.getY()) < me.getRadius() + curr.getRadius()
-					&& curr.isAlive() && !curr.equals(me)) { // a cell is touching me iff it is closer than the sum of
-																// our radii, it is alive,
-																// and it is not myself
-				touchedCells.add(curr);
+		for (SpatialGrid grid : speciesGrids) {
+			if (grid != null) {
+				touchedCells.addAll(grid.getTouchingCells(me));
 			}
 		}
+		touchedCells.sort(SpatialGrid.DISH_ORDER);
 		return touchedCells;
 	}
 	
 	/**
-	 * @return the Random object used by the simulation
+	 * Helper method for cells that want to know both what they can see and what
+	 * they are touching. Equivalent to calling getCellsInRange() with the cell's
+	 * scaled vision range and getTouchingCells(), but both lists are gathered in
+	 * a single pass over each species' grid, and come grouped by species.
+	 * 
+	 * @param me the querying cell
+	 * @return the neighborhood of the cell
+	 */
+	public Neighborhood getNeighborhood(Cell me) {
+		return getNeighborhood(me, new Neighborhood());
+	}
+
+	/**
+	 * Same as getNeighborhood(Cell), but fills in a neighborhood the caller
+	 * already has instead of allocating a new one. Whatever the neighborhood held
+	 * before is thrown out.
+	 * 
+	 * @param me           the querying cell
+	 * @param neighborhood the neighborhood to reuse
+	 * @return the same neighborhood, filled in for the cell
+	 */
+	public Neighborhood getNeighborhood(Cell me, Neighborhood neighborhood) {
+		neighborhood.clear();
+		double visionRange = me.getScaledVisionRange();
+		
+		// the cached neighbor lists are used when they can be trusted
+		if (neighborListCache != null
+				&& neighborListCache.getNeighborhood(me, visionRange, me.getRadius() + getMaxRadius(), neighborhood)) {
+			return neighborhood;
+		}
+		
+		for (int species = 0; species < speciesGrids.size(); species++) {
+			if (speciesGrids.get(species) != null) {
+				speciesGrids.get(species).getNeighborhood(me, visionRange, neighborhood.getVisibleCells(species),
+						neighborhood.getTouchedCells(species));
+			}
+		}
+		return neighborhood;
+	}
+	
+	/**
+	 * Helper method for cells looking for a target for one of their behaviors.
+	 * Finds the closest cell of the behavior's target species that the querying
+	 * cell can see and that matches the behavior's targeting specifications. The
+	 * search starts next to the querying cell and works outwards, so a nearby
+	 * match saves looking at the rest of the vision range.
+	 * 
+	 * @param me       the querying cell
+	 * @param behavior the behavior looking for a target
+	 * @return the closest matching cell, or null if there is none
+	 */
+	public Cell findNearestTarget(Cell me, Behavior behavior) {
+		SpatialGrid grid = getSpeciesGrid(behavior.getTargetCellSpeciesID());
+		if (grid == null) { // no member of that species has ever lived here
+			return null;
+		}
+		return grid.findNearest(me, me.getScaledVisionRange(), behavior);
+	}
+	
+	/**
+	 * Cells call this method whenever they move, so that the petri dish can keep
+	 * its spatial index up to date. Cells which have not been placed in the dish
+	 * yet are ignored.
+	 * 
+	 * @param c the cell that moved
+	 */
+	public void updateSpatialIndex(Cell c) {
+		if (acting) {
+			return; // every cell is refiled once they are done acting
+		}
+		SpatialGrid grid = getSpeciesGrid(c.getSpeciesID());
+		if (grid != null) {
+			grid.update(c);
+		}
+		if (neighborListCache != null) {
+			neighborListCache.cellMoved(c);
+		}
+	}
+	
+	/**
+	 * @return the largest radius of any cell in the petri dish (or larger, since
+	 *         cells may have shrunk since)
+	 */
+	double getMaxRadius() {
+		double maxRadius = 0;
+		for (SpatialGrid grid : speciesGrids) {
+			if (grid != null) {
+				maxRadius = Math.max(maxRadius, grid.getMaxRadius());
+			}
+		}
+		return maxRadius;
+	}
+	
+	/**
+	 * Helper method to look up the spatial grid of a species.
+	 * 
+	 * @param speciesID the ID of the species in the SpeciesRegistry
+	 * @return the grid for that species, or null if no member of that species has
+	 *         ever lived here
+	 */
+	private SpatialGrid getSpeciesGrid(int speciesID) {
+		if (speciesID < 0 || speciesID >= speciesGrids.size()) {
+			return null;
+		}
+		return speciesGrids.get(speciesID);
+	}
+	
+	/**
+	 * @return the dish's own random stream, only to be used on the simulation
+	 *         thread
 	 */
 	public Random getRNG() {
 		return rng;
 	}
 
 	/**
-	 * @return a reference to the GUI thread API enabling retrieval of GUI state information
+	 * @return the store holding the position, velocity, mass and energy of every
+	 *         cell in this petri dish; while the cells act, the calling thread's
+	 *         own store instead, where newborns are kept until they are placed
+	 */
+	public CellStore getCellStore() {
+		if (acting) {
+			return nurseries.get();
+		}
+		return cellStore;
+	}
+
+	/**
+	 * Has a cell eat or nibble on another. The meal happens right away, unless the
+	 * cells are acting (as they are during every tick), in which case it is
+	 * written down and happens once all the cells have acted (if the eater wins its
+	 * target, see TickIntents).
+	 * 
+	 * @param eater        the cell doing the eating
+	 * @param target       the cell being eaten
+	 * @param behaviorType EAT or NIBBLE
+	 */
+	public void requestMeal(Cell eater, Cell target, BehaviorType behaviorType) {
+		if (acting) {
+			intents.meal(eater, target, behaviorType == BehaviorType.NIBBLE);
+		} else if (behaviorType == BehaviorType.NIBBLE) {
+			eater.nibble(target);
+		} else {
+			eater.eat(target);
+		}
+	}
+
+	/**
+	 * Has a cell push away the cells it is touching, with its squish() method.
+	 * The push happens right away, unless the cells are acting (as they are during
+	 * every tick), in which case it is written down and happens once all the
+	 * cells have finished their updates.
+	 * 
+	 * @param pusher       the cell doing the pushing
+	 * @param touchedCells the cells it is touching
+	 */
+	public void requestSquish(Cell pusher, ArrayList<Cell> touchedCells) {
+		if (acting) {
+			intents.squish(pusher, touchedCells);
+		} else {
+			pusher.squish(touchedCells);
+		}
+	}
+
+	/**
+	 * @return the timing wheel which ends the behavior cooldowns of the cells in
+	 *         this petri dish
 	 */
-	public PetriDishApp getApp() {
-		return app;
+	public CooldownWheel getCooldownWheel() {
+		return cooldownWheel;
 	}
 
 	/**
@@ -361,10 +838,60 @@ public class PetriDish implements Runnable {
 	}
 
 	/**
-	 * @return the framesPerSecond value of this petri dish simulation (calculated for every tick) (not averaged)
+	 * @return the number of ticks run so far
 	 */
-	public long getFramesPerSecond() {
-		return framesPerSecond;
+	public long getTick() {
+		return cooldownWheel.getTick();
+	}
+
+	/**
+	 * @return the seed the dish's random stream was started with (the one made
+	 *         up, if the config gave none)
+	 */
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the number of cells in the petri dish, dead or alive (the dead
+	 *         are cleared out during the next tick)
+	 */
+	public int getCellCount() {
+		return allCells.size();
+	}
+
+	/**
+	 * Counts the living members of a species. Goes through every cell, so it is
+	 * meant for reports rather than for use on every tick.
+	 * 
+	 * @param speciesID the species ID, see SpeciesRegistry
+	 * @return the number of living cells of that species
+	 */
+	public int getPopulation(int speciesID) {
+		int population = 0;
+		for (int i = 0; i < allCells.size(); i++) {
+			if (allCells.get(i).getSpeciesID() == speciesID && allCells.get(i).isAlive()) {
+				population++;
+			}
+		}
+		return population;
+	}
+
+	/**
+	 * @return the color of every species drawn so far, as 0xAARRGGBB, by species
+	 *         ID; 0 for species not drawn yet. Only to be used by the thread
+	 *         driving the petri dish.
+	 */
+	int[] getPalette() {
+		return palette;
+	}
+
+	/**
+	 * @param agarFeedFactor the most agar cells added to the dish in one tick,
+	 *                       from the next tick on; may be set from any thread
+	 */
+	public void setAgarFeedFactor(int agarFeedFactor) {
+		this.agarFeedFactor = agarFeedFactor;
 	}
 
 	/**
@@ -377,14 +904,33 @@ public class PetriDish implements Runnable {
 	 * @return the distance
 	 */
 	public static double distanceBetween(double x1, double y1, double x2, double y2) {
-		return Math.sqrt(Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2));
+		return Math.sqrt(squaredDistanceBetween(x1, y1, x2, y2));
 	}
 
 	/**
-	 * Causes the simulation thread to terminate ASAP after call
+	 * Helper method to get the squared distance between two points in the petri
+	 * dish. Cheaper than distanceBetween() when only comparing distances.
+	 * 
+	 * @param x1 first point's x
+	 * @param y1 first point's y
+	 * @param x2 second point's x
+	 * @param y2 second point's y
+	 * @return the squared distance
 	 */
-	public void stop() {
-		done = true;
+	public static double squaredDistanceBetween(double x1, double y1, double x2, double y2) {
+		double dx = x1 - x2;
+		double dy = y1 - y2;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Lets the tick pool's threads go, if the petri dish has a tick pool. The
+	 * petri dish must not be stepped afterwards.
+	 */
+	public void shutdown() {
+		if (tickPool != null) {
+			tickPool.shutdown();
+		}
 	}
 
 }
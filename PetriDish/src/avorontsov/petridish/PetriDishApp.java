@@ -3,6 +3,7 @@ package avorontsov.petridish;
 import javafx.application.Application;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.Group;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -14,6 +15,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TabPane;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.stage.WindowEvent;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -29,11 +31,10 @@ public class PetriDishApp extends Application {
 	
 	public static final boolean DEFAULT_SIMULATION_PAUSE_STATE = false;
 
-	public static final int DEFAULT_PETRI_DISH_WIDTH = 750;
-	public static final int DEFAULT_PETRI_DISH_HEIGHT = 750;
+	// the defaults and limits of a new simulation's settings are kept in SimulationConfig
 	
-	public static final int MIN_PETRI_DISH_DIM = 30;
-	public static final int MAX_PETRI_DISH_DIM = 2000;
+	public static final int MAX_PETRI_WINDOW_DIM = 900; // larger dishes are zoomed and panned through a window this big
+	public static final double ZOOM_PER_SCROLL_PIXEL = 1.005; // how much the view zooms in for each pixel scrolled
 	
 	public static final int DEFAULT_SIMULATION_TICK_DELAY_MS = 30;// this is the default minimum time between update ticks of the simulation. At least this much time will pass between each graphics update request generated by the simulation thread
 	// Some notes. Around 20 ms is the minimum tick delay to avoid inconsistent tick
@@ -46,30 +47,22 @@ public class PetriDishApp extends Application {
 	public static final int MIN_SIMULATION_TICK_DELAY_MS = 0;
 	public static final int MAX_SIMULATION_TICK_DELAY_MS = 100;
 	
-	// TODO temp values. Ideally a more robust system for this type of thing later on
-	// i.e. a specialized species data structure which will also track certain spawning/etc. hints
-	// e.g. species spawn rate; species initial population;
-	
-	// during sim
-	public static final int DEFAULT_AGAR_FEED_FACTOR = 4;
-
-	// startup sim
-	public static final int DEFAULT_AGAR_INITIAL_POP = 100;
-	public static final int DEFAULT_GRAZER_INITIAL_POP = 5;
-	public static final int DEFAULT_PRED_INITIAL_POP = 2;
-	public static final int DEFAULT_PLANT_INITIAL_POP = 12;
+	public static final RenderMode DEFAULT_RENDER_MODE = RenderMode.SCENE_GRAPH;
 	
 	private Group petriRoot; // the root node of the simulation window scene graph - all cell graphics Nodes are assigned as children of this Group
-	private PetriDish petri; // the thread responsible for running the simulation in parallel to the GUI
+	private PetriDishRunner petri; // the thread responsible for running the simulation in parallel to the GUI
 								// thread
 	private Stage petriWindow; // the window in which the simulation will be shown
+	private Viewport viewport; // the part of the dish shown in the simulation window
+	private double lastDragX; // where the mouse was when the simulation window was last dragged, for panning
+	private double lastDragY;
 		
-	// GUI state information, protected for convenient access from PetriDish and other classes
+	// GUI state information, protected for convenient access from PetriDishRunner and other classes
 	// separate properties from the built-in GUI element properties are instantiated
 	// to improve clarity
 	
 	protected SimpleBooleanProperty simulationPaused; // true only when the simulation is paused
-	protected SimpleIntegerProperty simulationDelay; // ranges from 0 (framerate uncapped) to 100 (10 fps)
+	protected SimpleIntegerProperty simulationDelay; // ranges from 0 (tick rate uncapped) to 100 (10 ticks per second)
 									// changes are applied at the end of each simulation cycle
 									// these min and max values are hardcoded in the slider and may be changed there
 	
@@ -83,6 +76,10 @@ public class PetriDishApp extends Application {
 	protected SimpleIntegerProperty newSimulationGrazerPop;
 	protected SimpleIntegerProperty newSimulationPredPop;
 	protected SimpleIntegerProperty newSimulationPlantPop;
+	protected SimpleIntegerProperty newSimulationNeighborListSkin;
+	protected SimpleIntegerProperty newSimulationTickThreads;
+	protected SimpleIntegerProperty newSimulationSeed;
+	protected SimpleObjectProperty<RenderMode> newSimulationRenderMode;
 	
 	// just to organize : this is the label to which the framerate is written
 	private Label fps;
@@ -114,15 +111,20 @@ public class PetriDishApp extends Application {
 		
 		simulationPaused = new SimpleBooleanProperty(DEFAULT_SIMULATION_PAUSE_STATE);
 		simulationDelay = new SimpleIntegerProperty(DEFAULT_SIMULATION_TICK_DELAY_MS);
-		newSimulationHeight = new SimpleIntegerProperty(DEFAULT_PETRI_DISH_HEIGHT);
-		newSimulationWidth = new SimpleIntegerProperty(DEFAULT_PETRI_DISH_WIDTH);
+		newSimulationHeight = new SimpleIntegerProperty(SimulationConfig.DEFAULT_PETRI_DISH_HEIGHT);
+		newSimulationWidth = new SimpleIntegerProperty(SimulationConfig.DEFAULT_PETRI_DISH_WIDTH);
+		
+		runningAgarFeedFactor = new SimpleIntegerProperty(SimulationConfig.DEFAULT_AGAR_FEED_FACTOR);
 		
-		runningAgarFeedFactor = new SimpleIntegerProperty(DEFAULT_AGAR_FEED_FACTOR);
+		newSimulationAgarPop = new SimpleIntegerProperty(SimulationConfig.DEFAULT_AGAR_INITIAL_POP);
+		newSimulationGrazerPop = new SimpleIntegerProperty(SimulationConfig.DEFAULT_GRAZER_INITIAL_POP);
+		newSimulationPredPop = new SimpleIntegerProperty(SimulationConfig.DEFAULT_PRED_INITIAL_POP);
+		newSimulationPlantPop = new SimpleIntegerProperty(SimulationConfig.DEFAULT_PLANT_INITIAL_POP);
 		
-		newSimulationAgarPop = new SimpleIntegerProperty(DEFAULT_AGAR_INITIAL_POP);
-		newSimulationGrazerPop = new SimpleIntegerProperty(DEFAULT_GRAZER_INITIAL_POP);
-		newSimulationPredPop = new SimpleIntegerProperty(DEFAULT_PRED_INITIAL_POP);
-		newSimulationPlantPop = new SimpleIntegerProperty(DEFAULT_PLANT_INITIAL_POP);
+		newSimulationNeighborListSkin = new SimpleIntegerProperty(SimulationConfig.DEFAULT_NEIGHBOR_LIST_SKIN);
+		newSimulationTickThreads = new SimpleIntegerProperty(SimulationConfig.DEFAULT_TICK_THREADS);
+		newSimulationSeed = new SimpleIntegerProperty(SimulationConfig.DEFAULT_SEED);
+		newSimulationRenderMode = new SimpleObjectProperty<RenderMode>(DEFAULT_RENDER_MODE);
 
 		// initializing GUI window "control panel" as the master window
 
@@ -170,7 +172,7 @@ public class PetriDishApp extends Application {
 				topBox.getChildren().add(currMsg);
 				
 				// frame rate display
-				fps = new Label("FPS: 0"); // TODO made into a field. bad decision? decide later
+				fps = new Label("FPS: 0 TPS: 0 Skipped: 0\nDrawn every 1 pulses, 0 pulses skipped"); // TODO made into a field. bad decision? decide later
 				topBox.getChildren().add(fps);
 				
 		// END OF TOP BOX
@@ -196,7 +198,7 @@ public class PetriDishApp extends Application {
 							if (petri == null) { // if no simulation is currently running
 								initializeSimulationWindow();
 								petriWindow.show();
-								petri = new PetriDish(PetriDishApp.this);
+								petri = new PetriDishRunner(PetriDishApp.this);
 							}
 							restartSim.setText("Close");
 							currMsg.setText("Restarted simulation.");
@@ -268,8 +270,11 @@ public class PetriDishApp extends Application {
 		// no nodes; initially simulation window is blank, so no need to modify
 		// petriRoot's children
 
-		// set the petri dish window dimensions from configuration
-		Scene petriScene = new Scene(petriRoot, newSimulationWidth.get(), newSimulationHeight.get());
+		// set the petri dish window dimensions from configuration, as large as the dish unless the dish is huge
+		int windowWidth = Math.min(newSimulationWidth.get(), MAX_PETRI_WINDOW_DIM);
+		int windowHeight = Math.min(newSimulationHeight.get(), MAX_PETRI_WINDOW_DIM);
+		Scene petriScene = new Scene(petriRoot, windowWidth, windowHeight);
+		viewport = new Viewport(newSimulationWidth.get(), newSimulationHeight.get(), windowWidth, windowHeight);
 
 		// set the petri dish window's stats, incl. title, location
 		petriWindow.setTitle("Petri Dish");
@@ -283,6 +288,25 @@ public class PetriDishApp extends Application {
 		    @Override
 		    public void handle(MouseEvent mouseEvent) {
 		       petriRoot.requestFocus();
+		       lastDragX = mouseEvent.getSceneX(); // in case this starts a drag
+		       lastDragY = mouseEvent.getSceneY();
+		    }
+		});
+		
+		// dragging the mouse pans the view, and scrolling zooms it in and out around the mouse
+		petriScene.addEventHandler(MouseEvent.MOUSE_DRAGGED, new EventHandler<MouseEvent>() {
+		    @Override
+		    public void handle(MouseEvent mouseEvent) {
+		       viewport.pan(mouseEvent.getSceneX() - lastDragX, mouseEvent.getSceneY() - lastDragY);
+		       lastDragX = mouseEvent.getSceneX();
+		       lastDragY = mouseEvent.getSceneY();
+		    }
+		});
+		petriScene.addEventHandler(ScrollEvent.SCROLL, new EventHandler<ScrollEvent>() {
+		    @Override
+		    public void handle(ScrollEvent scrollEvent) {
+		       viewport.zoom(Math.pow(ZOOM_PER_SCROLL_PIXEL, scrollEvent.getDeltaY()), scrollEvent.getSceneX(),
+		    		   scrollEvent.getSceneY());
 		    }
 		});
 		
@@ -296,12 +320,20 @@ public class PetriDishApp extends Application {
 	}
 	
 	/**
-	 * Invoked by the simulation during every update to send info to the fps display.
+	 * Invoked by the simulation whenever a new frame is drawn to send info to the fps display.
 	 * 
-	 * @param framesPerSecond the frame rate as calculated by the simulation on the past update
+	 * @param framesPerSecond the frame rate as measured when the frame was drawn
+	 * @param ticksPerSecond  the tick rate as calculated by the simulation when the frame was made
+	 * @param framesSkipped   the number of ticks so far which were never drawn
+	 * @param pulsesPerDraw   the simulation window is currently drawn on one in
+	 *                        this many pulses, see RenderThrottle
+	 * @param pulsesSkipped   the number of pulses so far the window was not drawn
+	 *                        on to keep drawing from taking over the GUI thread
 	 */
-	public void updateFrameRateDisplay(long framesPerSecond) {
-		fps.setText("FPS: " + framesPerSecond);
+	public void updateFrameRateDisplay(long framesPerSecond, long ticksPerSecond, long framesSkipped,
+			int pulsesPerDraw, long pulsesSkipped) {
+		fps.setText("FPS: " + framesPerSecond + " TPS: " + ticksPerSecond + " Skipped: " + framesSkipped
+				+ "\nDrawn every " + pulsesPerDraw + " pulses, " + pulsesSkipped + " pulses skipped");
 	}
 
 	/**
@@ -314,6 +346,35 @@ public class PetriDishApp extends Application {
 		return petriRoot;
 	}
 
+	/**
+	 * @return the part of the dish shown in the simulation window, only to be
+	 *         used on the GUI thread
+	 */
+	public Viewport getViewport() {
+		return viewport;
+	}
+
+	/**
+	 * Gathers the settings for a new simulation into a configuration for the
+	 * petri dish. Only to be used on the GUI thread.
+	 * 
+	 * @return the configuration
+	 */
+	public SimulationConfig newSimulationConfig() {
+		SimulationConfig config = new SimulationConfig();
+		config.setWidth(newSimulationWidth.get());
+		config.setHeight(newSimulationHeight.get());
+		config.setAgarPop(newSimulationAgarPop.get());
+		config.setGrazerPop(newSimulationGrazerPop.get());
+		config.setPredPop(newSimulationPredPop.get());
+		config.setPlantPop(newSimulationPlantPop.get());
+		config.setAgarFeedFactor(runningAgarFeedFactor.get());
+		config.setNeighborListSkin(newSimulationNeighborListSkin.get());
+		config.setTickThreads(newSimulationTickThreads.get());
+		config.setSeed(newSimulationSeed.get());
+		return config;
+	}
+
 	/**
 	 * Gets the window the simulation is running in, allowing for information to be retrieved.
 	 * 
@@ -0,0 +1,322 @@
+package avorontsov.petridish;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.stage.Stage;
+
+/**
+ * This class is instantiated by PetriDishApp and immediately starts its own
+ * thread in parallel to the JavaFX GUI thread. On this thread, a petri dish is
+ * stepped on a fixed timestep clock, and at the end of every tick a frame of
+ * graphics information is published for the GUI thread to draw when it is
+ * ready, smoothly interpolated between ticks. The runner is all that ties the
+ * petri dish to the GUI: it carries the user's settings over to the dish, and
+ * the dish's frames over to the simulation window.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class PetriDishRunner implements Runnable {
+
+	// timers and stuff used to track performance
+	long ticksPerSecond; // initialized only after first simulation loop completes
+	long simulationCycleDelta;
+	long framesPerSecond; // measured by the GUI thread as it draws
+	private long lastFrameTime = -1; // when the GUI thread last drew a new frame, -1 before the first
+	private Frame shownFrame; // the frame the GUI thread is showing, null before the first; only the GUI thread's
+	private final RenderMode renderMode; // how the simulation window is drawn
+	private FrameRenderer renderer; // draws the frames in the simulation window; only the GUI thread's
+	private long shownViewportVersion = -1; // the version of the viewport the shown frame was drawn in
+	private final RenderThrottle renderThrottle = new RenderThrottle(); // decides which pulses the GUI thread
+																		// draws on
+	private volatile boolean windowVisible = true; // false while the simulation window is minimized or hidden
+	private volatile long framesSkipped = 0; // the number of ticks never drawn, only written by the simulation thread
+	private long nextTickTime = -1; // when the next tick is due on the simulation clock, in System.nanoTime(); -1
+									// when the clock must be restarted (e.g. after a pause)
+	private long clockTickLength = -1; // the tick length the clock is running at, in nanoseconds; 0 if uncapped
+
+	private volatile boolean done = false; // true only when the simulation thread must be stopped
+	private final PetriDishApp app; // refers to the application thread - aka the graphics thread, used to
+									// retrieve GUI state information and to draw in the simulation window
+	private final SimulationConfig config; // the settings the petri dish is created with
+	private PetriDish petri; // the simulation this runner drives, created on the simulation thread and only
+							// used there
+
+	// the simulation clock catches up on at most this many ticks' worth of lost time before giving up on it
+	private static final int MAX_CATCH_UP_TICKS = 5;
+
+	// the frames the simulation thread fills in at the end of every tick and the GUI thread draws, handed over
+	// without either waiting on the other
+	private final TripleBuffer<Frame> frames = new TripleBuffer<Frame>(new Frame(), new Frame(), new Frame());
+	private final AnimationTimer renderTimer = new AnimationTimer() { // draws the newest frame on every pulse
+		@Override
+		public void handle(long now) {
+			drawNewestFrame(now);
+		}
+	};
+
+	/**
+	 * Starts the simulation thread, which creates a petri dish with the settings
+	 * for a new simulation and runs it.
+	 * 
+	 * @param app a reference to the GUI thread to enable graphics output from this
+	 *            thread
+	 */
+	public PetriDishRunner(PetriDishApp app) {
+		this.app = app;
+		renderMode = app.newSimulationRenderMode.get();
+		config = app.newSimulationConfig(); // read on the GUI thread, which owns the settings
+		
+		new Thread(this).start();
+		
+		Platform.runLater(new Runnable() { // the GUI thread pulls frames at its own pace from now on
+			@Override
+			public void run() {
+				renderer = createRenderer();
+				watchWindow(app.getPetriWindow());
+				renderTimer.start();
+			}
+		});
+	}
+
+	/**
+	 * The primary simulation loop, controlled from the GUI thread. Steps the
+	 * petri dish and publishes a frame at the end of every tick, which the GUI
+	 * thread draws when it is ready. The two threads never wait on each other.
+	 * 
+	 * The simulation keeps its own clock, with ticks due at a fixed interval (the
+	 * delay set by the user) regardless of how long any one tick takes or how
+	 * fast the GUI draws. A tick that runs late is followed by the next one right
+	 * away, until the simulation has caught up; if it falls too far behind, the
+	 * lost time is written off. With no delay, ticks run back to back. Pausing
+	 * holds the loop between ticks.
+	 * 
+	 * A frame is built every tick while the simulation window can be seen, so the
+	 * GUI thread always gets the newest tick when it pulls. Frames the GUI thread
+	 * never took before a newer one came are dropped by the triple buffer and
+	 * counted as skipped; so are the ticks run while the window is minimized or
+	 * hidden, for which no frame is built at all. Either way, the simulation never
+	 * waits on the GUI.
+	 * 
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+
+		petri = new PetriDish(config); // spawns cells to start off the simulation
+		System.out.println("Simulation seed: " + petri.getSeed()); // so that an interesting run can be repeated
+		
+		// the first frame shows the starting population
+		Frame first = frames.getBack();
+		first.reset(0, 0);
+		petri.drawInto(first);
+		first.stamp(System.nanoTime(), 0, petri.getPalette());
+		frames.publish();
+		
+		while (!waitWhilePaused()) { // check if we have gotten an order to stop since the last tick
+
+			// set timers for this cycle
+			long cycleStartTime = System.nanoTime();
+			if (nextTickTime == -1) {
+				nextTickTime = cycleStartTime; // (re)start the simulation clock
+			}
+			
+			// start of code for simulation thread
+			
+			Frame frame = null; // the frame to draw this tick's cells in, if any; no other thread is using it
+			if (windowVisible) {
+				frame = frames.getBack();
+				frame.reset(petri.getTick() + 1, ticksPerSecond);
+			} else {
+				framesSkipped++; // nobody would see it
+			}
+
+			petri.setAgarFeedFactor(app.runningAgarFeedFactor.get());
+			petri.step(frame);
+			
+			// advance the simulation clock to the next tick
+			long tickLength = app.simulationDelay.get() * 1000000L; // changes are applied from the next tick on
+			if (tickLength != clockTickLength) { // the delay was changed, so restart the clock at the new rate
+				nextTickTime = cycleStartTime; // (time kept at the old rate, or at none, is no use at the new one)
+				clockTickLength = tickLength;
+			}
+			nextTickTime += tickLength;
+			
+			// the GUI thread will draw it next, unless an even newer frame comes first, moving the cells along
+			// over the course of the next tick
+			if (frame != null) {
+				frame.stamp(System.nanoTime(), tickLength, petri.getPalette());
+				if (frames.publish()) {
+					framesSkipped++; // the GUI thread never took the last frame after all
+				}
+			}
+
+			// stop this thread's work timer
+			simulationCycleDelta = System.nanoTime() - cycleStartTime;
+			
+			// end of code for the simulation thread
+			
+			// the rest of this code is run on the simulation thread and should be kept brief
+
+			// calculate how much time we have left until the next tick is due
+			long timeRemainingNanos = nextTickTime - System.nanoTime();
+			if (tickLength > 0 && timeRemainingNanos < -MAX_CATCH_UP_TICKS * tickLength) { // too far behind to catch up
+				System.out.println("WARNING: The simulation thread is lagging. Lost "
+						+ (-1 * timeRemainingNanos) / 1000000 + " milliseconds."); // accurate to within 1 ms
+				nextTickTime = -1; // write off the lost time
+			}
+
+			// if any time remains, sleep until it's time to start working on the next cycle
+			if (timeRemainingNanos > 0) {
+				try {
+					Thread.sleep(timeRemainingNanos / 1000000, (int) (timeRemainingNanos % 1000000));
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+			
+			// finally, calculate the true time we spent on this cycle
+			long thisCycleDelta = Math.max(1, System.nanoTime() - cycleStartTime); // the real time elapsed
+			
+			ticksPerSecond = 1000000000/thisCycleDelta;
+			
+		}
+		
+		petri.shutdown(); // let the tick pool's threads go
+		
+		Platform.runLater(new Runnable() { // nothing more will be published
+			@Override
+			public void run() {
+				renderTimer.stop();
+			}
+		});
+	}
+	
+	/**
+	 * Helper method for the GUI thread to draw the newest frame the simulation
+	 * has published, if it hasn't already been drawn. Called on every pulse of
+	 * the GUI, so it never waits for the simulation; if the simulation hasn't
+	 * finished a new frame since, the old one stays up. Either way, the cells
+	 * are moved along to where they would be at this point of the tick.
+	 * 
+	 * Nothing is drawn while the window is minimized or hidden, or on pulses the
+	 * render throttle skips because drawing is taking up too much of the GUI
+	 * thread's time.
+	 * 
+	 * @param now the time of the pulse, in nanoseconds
+	 */
+	private void drawNewestFrame(long now) {
+		if (!windowVisible || !renderThrottle.shouldDraw()) {
+			return;
+		}
+		long drawStartTime = System.nanoTime();
+		
+		Frame frame = frames.pull();
+		if (frame != null) {
+			if (lastFrameTime != -1 && now > lastFrameTime) {
+				framesPerSecond = 1000000000 / (now - lastFrameTime);
+			}
+			lastFrameTime = now;
+			app.updateFrameRateDisplay(framesPerSecond, frame.getTicksPerSecond(), framesSkipped,
+					renderThrottle.getPulsesPerDraw(), renderThrottle.getSkippedPulses()); // before we draw the
+																				// simulation itself, send the rates
+			shownFrame = frame;
+		}
+		
+		if (shownFrame != null) {
+			// the whole frame is redrawn if the user zoomed or panned since
+			long viewportVersion = app.getViewport().getVersion();
+			boolean fresh = frame != null || viewportVersion != shownViewportVersion;
+			shownViewportVersion = viewportVersion;
+			
+			// moved along on the simulation's clock rather than the pulse's
+			renderer.draw(shownFrame, fresh, shownFrame.getProgress(System.nanoTime()));
+		}
+		
+		renderThrottle.drawn(System.nanoTime() - drawStartTime);
+	}
+	
+	/**
+	 * Helper method for the GUI thread to keep track of whether the simulation
+	 * window can be seen.
+	 * 
+	 * @param window the simulation window
+	 */
+	private void watchWindow(Stage window) {
+		ChangeListener<Boolean> visibilityListener = new ChangeListener<Boolean>() {
+			@Override
+			public void changed(ObservableValue<? extends Boolean> observableValue, Boolean oldValue,
+					Boolean newValue) {
+				windowVisible = window.isShowing() && !window.isIconified();
+			}
+		};
+		window.showingProperty().addListener(visibilityListener);
+		window.iconifiedProperty().addListener(visibilityListener);
+		windowVisible = window.isShowing() && !window.isIconified();
+	}
+	
+	/**
+	 * Helper method for the GUI thread to create the renderer for the render mode
+	 * chosen for this petri dish.
+	 * 
+	 * @return the renderer, drawing in the simulation window
+	 */
+	private FrameRenderer createRenderer() {
+		switch (renderMode) {
+		case CANVAS:
+			return new CanvasRenderer(app.getPetriRoot(), app.getViewport());
+		case RETAINED_SCENE_GRAPH:
+			return new RetainedSceneGraphRenderer(app.getPetriRoot(), app.getViewport());
+		case RASTER:
+			return new RasterRenderer(app.getPetriRoot(), app.getViewport());
+		default:
+			return new SceneGraphRenderer(app.getPetriRoot(), app.getViewport());
+		}
+	}
+	
+	/**
+	 * Helper method to hold the simulation thread for as long as the user has the
+	 * simulation paused. The simulation clock is restarted afterwards, so that the
+	 * pause isn't made up for with a burst of ticks.
+	 * 
+	 * @return true only if the simulation thread must be stopped
+	 */
+	private boolean waitWhilePaused() {
+		while (app.simulationPaused.get()) {
+			nextTickTime = -1;
+			if (done) {
+				return true;
+			}
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		return done;
+	}
+
+	/**
+	 * @return the framesPerSecond value of this petri dish simulation (calculated for every frame drawn) (not
+	 *         averaged)
+	 */
+	public long getFramesPerSecond() {
+		return framesPerSecond;
+	}
+
+	/**
+	 * @return the ticksPerSecond value of this petri dish simulation (calculated for every tick) (not averaged)
+	 */
+	public long getTicksPerSecond() {
+		return ticksPerSecond;
+	}
+
+	/**
+	 * Causes the simulation thread to terminate ASAP after call
+	 */
+	public void stop() {
+		done = true;
+	}
+
+}
@@ -0,0 +1,233 @@
+package avorontsov.petridish;
+
+import javafx.scene.Group;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rasterizes every cell in the viewport straight into an array of pixels the
+ * size of the simulation window, which is then copied into the image shown in
+ * the window in one go. The cost of a frame grows with the number of pixels
+ * painted, not the number of cells, and the scene graph is a single ImageView
+ * however many cells there are. Cells too small to see are painted as a single
+ * pixel.
+ * 
+ * The window is cut into horizontal bands, and the bands are painted in
+ * parallel on the common fork/join pool; each band only ever writes its own
+ * rows, so the threads never touch the same pixel. Whenever a new frame (or
+ * viewport) comes in, the visible cells are sorted into the bands they may
+ * cover anywhere between where they were before the tick and where they ended
+ * up, so that each band only looks at its own cells on every pulse until the
+ * next frame.
+ * 
+ * The pixels are not repainted on pulses where nothing could have moved.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class RasterRenderer extends FrameRenderer {
+
+	// each band is (at most) this many rows of pixels
+	private static final int BAND_HEIGHT = 32;
+
+	private final int width;
+	private final int height;
+	private final int bandCount;
+	private final int[] pixels; // the window, row by row, as 0xAARRGGBB; 0 (transparent) where there is no cell
+	private final WritableImage image;
+
+	private Frame frame; // the frame being painted, and how far along the tick to paint it
+	private double progress;
+	private double scale; // the viewport's, looked up once per paint
+	private double viewLeft;
+	private double viewTop;
+	private int[] colors = new int[0]; // the frame's palette, looked up once per frame
+	private boolean anyMoving; // true only if some cell of the frame shown moved during its tick
+	private int[] bandCells = new int[0]; // the index of every cell that may cover each band, grouped by band
+	private final int[] bandStarts; // where each band's cells start in bandCells, plus where the last ends
+
+	/**
+	 * Creates a renderer painting an image the size of the simulation window.
+	 * 
+	 * @see FrameRenderer#FrameRenderer(Group, Viewport)
+	 */
+	public RasterRenderer(Group root, Viewport viewport) {
+		super(root, viewport);
+		width = viewport.getWindowWidth();
+		height = viewport.getWindowHeight();
+		bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+		bandStarts = new int[bandCount + 1];
+		pixels = new int[width * height];
+		image = new WritableImage(width, height);
+		root.getChildren().setAll(new ImageView(image));
+	}
+
+	@Override
+	public void draw(Frame frame, boolean fresh, double progress) {
+		scale = viewport.getScale();
+		viewLeft = viewport.getLeft();
+		viewTop = viewport.getTop();
+		if (fresh) {
+			sortIntoBands(frame);
+		} else if (!anyMoving) {
+			return; // the image already shows exactly this
+		}
+
+		this.frame = frame;
+		this.progress = progress;
+		new PaintBands(0, bandCount).invoke();
+		this.frame = null;
+
+		image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+	}
+
+	/**
+	 * Helper method to sort the cells of a new frame in the viewport into the
+	 * bands they may cover over the course of the tick. A cell that may cover several bands is
+	 * filed under each of them, and each band keeps its cells in the order of the
+	 * frame, so cells added later are painted over earlier ones everywhere.
+	 * 
+	 * @param frame the new frame
+	 */
+	private void sortIntoBands(Frame frame) {
+		if (colors.length != frame.getPaletteSize()) {
+			colors = new int[frame.getPaletteSize()];
+		}
+		for (int color = 0; color < colors.length; color++) {
+			colors[color] = frame.getColor(color);
+		}
+
+		// count the cells of every band
+		int visibleCount = cull(frame);
+		anyMoving = false;
+		Arrays.fill(bandStarts, 0);
+		for (int k = 0; k < visibleCount; k++) {
+			int i = visible[k];
+			anyMoving |= frame.isMoving(i);
+			int firstBand = getFirstBand(frame, i);
+			int lastBand = getLastBand(frame, i);
+			for (int band = firstBand; band <= lastBand; band++) {
+				bandStarts[band + 1]++;
+			}
+		}
+
+		// each band starts where the bands before it end
+		for (int band = 0; band < bandCount; band++) {
+			bandStarts[band + 1] += bandStarts[band];
+		}
+		if (bandCells.length < bandStarts[bandCount]) {
+			bandCells = new int[Math.max(bandStarts[bandCount], bandCells.length * 2)];
+		}
+
+		// file every cell, using the end of each band's filled part as a cursor (shifted down one)
+		for (int k = 0; k < visibleCount; k++) {
+			int i = visible[k];
+			int firstBand = getFirstBand(frame, i);
+			int lastBand = getLastBand(frame, i);
+			for (int band = firstBand; band <= lastBand; band++) {
+				bandCells[bandStarts[band]++] = i;
+			}
+		}
+		for (int band = bandCount; band > 0; band--) {
+			bandStarts[band] = bandStarts[band - 1]; // undo the shift
+		}
+		bandStarts[0] = 0;
+	}
+
+	/**
+	 * @param frame the frame
+	 * @param i     the index of a cell in the frame
+	 * @return the first band the cell may cover during the tick
+	 */
+	private int getFirstBand(Frame frame, int i) {
+		double cellTop = (Math.min(frame.getY(i, 0), frame.getY(i, 1)) - frame.getRadius(i) - viewTop) * scale;
+		return Math.min(bandCount - 1, Math.max(0, (int) Math.floor(cellTop) / BAND_HEIGHT));
+	}
+
+	/**
+	 * @param frame the frame
+	 * @param i     the index of a cell in the frame
+	 * @return the last band the cell may cover during the tick
+	 */
+	private int getLastBand(Frame frame, int i) {
+		double cellBottom = (Math.max(frame.getY(i, 0), frame.getY(i, 1)) + frame.getRadius(i) - viewTop) * scale;
+		return Math.min(bandCount - 1, Math.max(0, (int) Math.ceil(cellBottom) / BAND_HEIGHT));
+	}
+
+	/**
+	 * Paints a run of bands. Runs of more than one band are split in half, and
+	 * the halves are painted in parallel.
+	 */
+	private class PaintBands extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from; // the first band of the run
+		private final int to; // one past the last band of the run
+
+		private PaintBands(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new PaintBands(from, middle), new PaintBands(middle, to));
+				return;
+			}
+			int firstRow = from * BAND_HEIGHT;
+			int endRow = Math.min(height, firstRow + BAND_HEIGHT); // one past the band's last row
+			Arrays.fill(pixels, firstRow * width, endRow * width, 0);
+			for (int k = bandStarts[from]; k < bandStarts[from + 1]; k++) {
+				int i = bandCells[k];
+				paint((frame.getX(i, progress) - viewLeft) * scale, (frame.getY(i, progress) - viewTop) * scale,
+						frame.getRadius(i) * scale, frame.getShape(i), colors[frame.getColorIndex(i)], firstRow,
+						endRow);
+			}
+		}
+	}
+
+	/**
+	 * Helper method to paint one cell, only within the given rows. A pixel is
+	 * painted if its center is inside the cell's shape; a cell too small to see
+	 * just paints the pixel it is in.
+	 * 
+	 * @param x      the x position of the cell in the window, in pixels
+	 * @param y      the y position of the cell in the window, in pixels
+	 * @param radius the radius of the cell's circle, or half the side of its
+	 *               square, in pixels
+	 * @param shape  the shape of the cell
+	 * @param argb   the color of the cell
+	 * @param top    the first row to paint in
+	 * @param bottom one past the last row to paint in
+	 */
+	private void paint(double x, double y, double radius, CellShape shape, int argb, int top, int bottom) {
+		if (radius < MIN_DRAWN_RADIUS) {
+			int column = (int) Math.floor(x);
+			int row = (int) Math.floor(y);
+			if (column >= 0 && column < width && row >= top && row < bottom) {
+				pixels[row * width + column] = argb;
+			}
+			return;
+		}
+		int firstRow = Math.max(top, (int) Math.ceil(y - radius - 0.5));
+		int lastRow = Math.min(bottom - 1, (int) Math.floor(y + radius - 0.5));
+		for (int row = firstRow; row <= lastRow; row++) {
+			double halfWidth = radius;
+			if (shape == CellShape.CIRCLE) {
+				double dy = row + 0.5 - y;
+				halfWidth = Math.sqrt(Math.max(0, radius * radius - dy * dy));
+			}
+			int firstColumn = Math.max(0, (int) Math.ceil(x - halfWidth - 0.5));
+			int lastColumn = Math.min(width - 1, (int) Math.floor(x + halfWidth - 0.5));
+			if (firstColumn <= lastColumn) {
+				Arrays.fill(pixels, row * width + firstColumn, row * width + lastColumn + 1, argb);
+			}
+		}
+	}
+
+}
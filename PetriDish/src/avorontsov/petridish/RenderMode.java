@@ -0,0 +1,26 @@
+package avorontsov.petridish;
+
+/**
+ * The ways the simulation window can be drawn, chosen when a petri dish is
+ * created. Each mode is drawn by a FrameRenderer of its own.
+ * 
+ * @author Andrey Vorontsov
+ */
+public enum RenderMode {
+	SCENE_GRAPH("Scene graph"), // a node for every cell, see SceneGraphRenderer
+	RETAINED_SCENE_GRAPH("Retained scene graph"), // a node for every cell, kept for its life, see
+													// RetainedSceneGraphRenderer
+	CANVAS("Canvas"), // every cell painted onto one canvas, see CanvasRenderer
+	RASTER("Software raster"); // every cell rasterized into one image, see RasterRenderer
+
+	private final String label; // shown in the GUI
+
+	private RenderMode(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
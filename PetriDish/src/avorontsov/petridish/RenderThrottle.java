@@ -0,0 +1,75 @@
+package avorontsov.petridish;
+
+/**
+ * Decides which pulses of the GUI the simulation window is drawn on, so that
+ * drawing never takes over the GUI thread. Every draw is timed, and if drawing
+ * takes up too much of the time between pulses, the window is only drawn every
+ * few pulses; once drawing is cheap again, the window is drawn more often. The
+ * pulses in between are simply skipped; whatever frames the simulation
+ * publishes meanwhile are overwritten, and the next draw pulls the newest.
+ * Only used on the GUI thread.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class RenderThrottle {
+
+	// the time between pulses of the GUI, which JavaFX aims to run at 60 per second
+	private static final double PULSE_NANOS = 1000000000.0 / 60;
+	// the window is drawn less often when drawing takes up more than this share of the time, and more often
+	// when it takes up less than half of it
+	private static final double MAX_DRAW_LOAD = 0.5;
+	// the window is drawn on at least one in this many pulses
+	public static final int MAX_PULSES_PER_DRAW = 8;
+	// how much each draw counts towards the running average of the draw time
+	private static final double DRAW_TIME_WEIGHT = 0.1;
+
+	private int pulsesPerDraw = 1; // the window is drawn on one in this many pulses
+	private int pulsesSinceDraw = 0;
+	private double averageDrawTime = 0; // in nanoseconds
+	private long skippedPulses = 0;
+
+	/**
+	 * To be called on every pulse.
+	 * 
+	 * @return true only if the window should be drawn on this pulse
+	 */
+	public boolean shouldDraw() {
+		pulsesSinceDraw++;
+		if (pulsesSinceDraw < pulsesPerDraw) {
+			skippedPulses++;
+			return false;
+		}
+		pulsesSinceDraw = 0;
+		return true;
+	}
+
+	/**
+	 * To be called after every draw, to adapt how often the window is drawn.
+	 * 
+	 * @param drawTime how long the draw took, in nanoseconds
+	 */
+	public void drawn(long drawTime) {
+		averageDrawTime += (drawTime - averageDrawTime) * DRAW_TIME_WEIGHT;
+		double load = averageDrawTime / (pulsesPerDraw * PULSE_NANOS); // the share of the time spent drawing
+		if (load > MAX_DRAW_LOAD && pulsesPerDraw < MAX_PULSES_PER_DRAW) {
+			pulsesPerDraw++;
+		} else if (load < MAX_DRAW_LOAD / 2 && pulsesPerDraw > 1) {
+			pulsesPerDraw--;
+		}
+	}
+
+	/**
+	 * @return the window is currently drawn on one in this many pulses
+	 */
+	public int getPulsesPerDraw() {
+		return pulsesPerDraw;
+	}
+
+	/**
+	 * @return the number of pulses the window was not drawn on so far
+	 */
+	public long getSkippedPulses() {
+		return skippedPulses;
+	}
+
+}
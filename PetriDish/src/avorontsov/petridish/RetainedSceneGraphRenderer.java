@@ -0,0 +1,294 @@
+package avorontsov.petridish;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Draws every cell as a node of its own (a Circle or a Rectangle), like the
+ * SceneGraphRenderer, but keeps each cell's node for as long as the cell is in
+ * the viewport, looked up by cellID. A node is added to the scene graph when
+ * its cell first shows up and removed when its cell is gone (or out of view),
+ * and in between only
+ * what actually changed about the cell (its position, size or color) is
+ * written to the node, so JavaFX only has to redo those nodes.
+ * 
+ * Cells that did not move during a tick are placed once when the frame comes
+ * in and then left alone; only the cells that moved are revisited on every
+ * pulse to move them along. Cells that never change, such as Agars, cost
+ * nothing to draw beyond being looked up once per frame, in a table keyed by
+ * the bare cellID so that the lookup allocates nothing.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class RetainedSceneGraphRenderer extends FrameRenderer {
+
+	private final RetainedTable retained = new RetainedTable(); // every node, by cellID
+	private final ArrayList<Retained> shown = new ArrayList<Retained>(); // every node, in no particular order
+	private Retained[] moving = new Retained[0]; // the nodes of the cells that moved during the tick shown
+	private int[] movingIndices = new int[0]; // the index of each of those cells in the frame
+	private int movingCount = 0;
+	private long frameCount = 0; // the number of frames that came in, used to find the cells that are gone
+
+	// scratch space for changing the scene graph in one go per frame
+	private final ArrayList<Node> born = new ArrayList<Node>();
+	private final HashSet<Node> dead = new HashSet<Node>();
+
+	/**
+	 * A cell's node, along with what was last written to it.
+	 */
+	private static class Retained {
+		private final long cellID;
+		private final Shape node;
+		private final CellShape shape;
+		private double radius = -1;
+		private Color color;
+		private double x = Double.NaN;
+		private double y = Double.NaN;
+		private long lastSeen; // the last frame the cell was in
+
+		private Retained(long cellID, CellShape shape) {
+			this.cellID = cellID;
+			this.shape = shape;
+			node = shape == CellShape.SQUARE ? new Rectangle() : new Circle();
+		}
+	}
+
+	/**
+	 * The nodes by cellID, in an open addressing hash table of longs, so that
+	 * looking a cell up neither boxes its cellID nor allocates an entry.
+	 */
+	private static class RetainedTable {
+		private static final int INITIAL_CAPACITY = 256; // a power of two, as every capacity is
+
+		private long[] keys = new long[INITIAL_CAPACITY];
+		private Retained[] values = new Retained[INITIAL_CAPACITY]; // null for an empty slot
+		private int size = 0;
+
+		/**
+		 * @param cellID the cellID of a cell
+		 * @return the cell's node, or null if it has none
+		 */
+		private Retained get(long cellID) {
+			int mask = keys.length - 1;
+			for (int s = slotOf(cellID, mask); values[s] != null; s = (s + 1) & mask) {
+				if (keys[s] == cellID) {
+					return values[s];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @param cellID the cellID of a cell
+		 * @param r      the cell's node, replacing any it had
+		 */
+		private void put(long cellID, Retained r) {
+			if ((size + 1) * 2 > keys.length) { // kept at most half full, so runs of filled slots stay short
+				resize(keys.length * 2);
+			}
+			int mask = keys.length - 1;
+			int s = slotOf(cellID, mask);
+			while (values[s] != null) {
+				if (keys[s] == cellID) {
+					values[s] = r;
+					return;
+				}
+				s = (s + 1) & mask;
+			}
+			keys[s] = cellID;
+			values[s] = r;
+			size++;
+		}
+
+		/**
+		 * Forgets a cell's node. The entries after it in its run are shifted back
+		 * into the gap, so that no lookup stops short of them.
+		 * 
+		 * @param cellID the cellID of a cell
+		 */
+		private void remove(long cellID) {
+			int mask = keys.length - 1;
+			int s = slotOf(cellID, mask);
+			while (values[s] != null && keys[s] != cellID) {
+				s = (s + 1) & mask;
+			}
+			if (values[s] == null) {
+				return; // not there
+			}
+			values[s] = null;
+			size--;
+			for (int next = (s + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+				int home = slotOf(keys[next], mask);
+				if (((next - home) & mask) >= ((next - s) & mask)) { // the gap lies between its home and it
+					keys[s] = keys[next];
+					values[s] = values[next];
+					values[next] = null;
+					s = next;
+				}
+			}
+		}
+
+		/**
+		 * Helper method to move every entry into a table of a new capacity.
+		 * 
+		 * @param capacity the new capacity, a power of two
+		 */
+		private void resize(int capacity) {
+			long[] oldKeys = keys;
+			Retained[] oldValues = values;
+			keys = new long[capacity];
+			values = new Retained[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldValues[i] != null) {
+					int s = slotOf(oldKeys[i], mask);
+					while (values[s] != null) {
+						s = (s + 1) & mask;
+					}
+					keys[s] = oldKeys[i];
+					values[s] = oldValues[i];
+				}
+			}
+		}
+
+		/**
+		 * @param cellID the cellID of a cell
+		 * @param mask   the capacity of the table, less one
+		 * @return the slot the cell's entry belongs in, if it is free
+		 */
+		private static int slotOf(long cellID, int mask) {
+			return (int) ((cellID * 0x9E3779B97F4A7C15L) >>> 32) & mask; // cellIDs are sequential, so spread them
+		}
+	}
+
+	/**
+	 * @see FrameRenderer#FrameRenderer(Group, Viewport)
+	 */
+	public RetainedSceneGraphRenderer(Group root, Viewport viewport) {
+		super(root, viewport);
+		root.getChildren().clear();
+	}
+
+	@Override
+	public void draw(Frame frame, boolean fresh, double progress) {
+		if (fresh) {
+			retain(frame, progress);
+			return; // every node was placed while retaining
+		}
+		for (int k = 0; k < movingCount; k++) {
+			int i = movingIndices[k];
+			place(moving[k], frame.getX(i, progress), frame.getY(i, progress));
+		}
+	}
+
+	/**
+	 * Helper method to bring the nodes up to date with a new frame (or viewport):
+	 * cells that came into view get a node, cells that are gone or out of view
+	 * lose theirs, and everybody else's node has whatever changed written to it.
+	 * 
+	 * @param frame    the new frame
+	 * @param progress how far along the tick to draw the cells
+	 */
+	private void retain(Frame frame, double progress) {
+		frameCount++;
+		movingCount = 0;
+		if (moving.length < frame.size()) {
+			moving = new Retained[Math.max(frame.size(), moving.length * 2)];
+			movingIndices = new int[moving.length];
+		}
+
+		transformRoot();
+		int visibleCount = cull(frame);
+		for (int k = 0; k < visibleCount; k++) {
+			int i = visible[k];
+			CellShape shape = frame.getShape(i);
+			Retained r = retained.get(frame.getCellID(i));
+			if (r == null || r.shape != shape) { // if the shape changed, the old node is swept out below
+				r = new Retained(frame.getCellID(i), shape);
+				retained.put(frame.getCellID(i), r);
+				shown.add(r);
+				born.add(r.node);
+			}
+			r.lastSeen = frameCount;
+
+			double radius = frame.getRadius(i);
+			if (radius != r.radius) {
+				r.radius = radius;
+				r.x = Double.NaN; // a square's corner moves with its size
+				if (shape == CellShape.SQUARE) {
+					((Rectangle) r.node).setWidth(2 * radius);
+					((Rectangle) r.node).setHeight(2 * radius);
+				} else {
+					((Circle) r.node).setRadius(radius);
+				}
+			}
+
+			Color color = getColor(frame, frame.getColorIndex(i));
+			if (color != r.color) {
+				r.color = color;
+				r.node.setFill(color);
+			}
+
+			place(r, frame.getX(i, progress), frame.getY(i, progress));
+			if (frame.isMoving(i)) {
+				moving[movingCount] = r;
+				movingIndices[movingCount] = i;
+				movingCount++;
+			}
+		}
+
+		// the cells that were not in view are gone; swap them out of the list of nodes shown
+		for (int k = 0; k < shown.size(); k++) {
+			Retained r = shown.get(k);
+			if (r.lastSeen != frameCount) {
+				dead.add(r.node);
+				if (retained.get(r.cellID) == r) { // unless the cell lives on with a new node
+					retained.remove(r.cellID);
+				}
+				shown.set(k, shown.get(shown.size() - 1)); // swap with the end
+				shown.remove(shown.size() - 1); // trim off the end
+				k--; // remember to check the swapped element too
+			}
+		}
+
+		// change the scene graph in one go
+		if (!dead.isEmpty()) {
+			root.getChildren().removeAll(dead);
+			dead.clear();
+		}
+		if (!born.isEmpty()) {
+			root.getChildren().addAll(born);
+			born.clear();
+		}
+	}
+
+	/**
+	 * Helper method to move a node to where its cell is drawn, if it is not
+	 * there already.
+	 * 
+	 * @param r the node
+	 * @param x the x position of the cell
+	 * @param y the y position of the cell
+	 */
+	private void place(Retained r, double x, double y) {
+		if (x == r.x && y == r.y) {
+			return;
+		}
+		r.x = x;
+		r.y = y;
+		if (r.shape == CellShape.SQUARE) {
+			((Rectangle) r.node).setX(x - r.radius);
+			((Rectangle) r.node).setY(y - r.radius);
+		} else {
+			((Circle) r.node).setCenterX(x);
+			((Circle) r.node).setCenterY(y);
+		}
+	}
+
+}
@@ -0,0 +1,73 @@
+package avorontsov.petridish;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
+import java.util.ArrayList;
+
+/**
+ * Draws every cell as a node of its own (a Circle or a Rectangle), placed
+ * directly under the root of the simulation window's scene graph. Whenever a
+ * new frame comes in, the nodes are made again from the frame, for the cells in
+ * the viewport only; on every pulse they are moved to where their cells are at
+ * that point of the tick. The root is scaled and moved into the viewport.
+ *
+ * @author Andrey Vorontsov
+ */
+public class SceneGraphRenderer extends FrameRenderer {
+
+	private final ArrayList<Node> graphics = new ArrayList<Node>(); // the node of every visible cell, in order
+	private int visibleCount = 0; // the number of cells in the viewport
+
+	/**
+	 * @see FrameRenderer#FrameRenderer(Group, Viewport)
+	 */
+	public SceneGraphRenderer(Group root, Viewport viewport) {
+		super(root, viewport);
+	}
+
+	@Override
+	public void draw(Frame frame, boolean fresh, double progress) {
+		if (fresh) {
+			transformRoot();
+			visibleCount = cull(frame);
+			graphics.clear();
+			for (int k = 0; k < visibleCount; k++) {
+				int i = visible[k];
+				double radius = frame.getRadius(i);
+				if (frame.getShape(i) == CellShape.SQUARE) {
+					Rectangle graphic = new Rectangle(2 * radius, 2 * radius);
+					graphic.setFill(getColor(frame, frame.getColorIndex(i)));
+					graphics.add(graphic);
+				} else {
+					Circle graphic = new Circle(radius);
+					graphic.setFill(getColor(frame, frame.getColorIndex(i)));
+					graphics.add(graphic);
+				}
+			}
+
+			root.getChildren().setAll(graphics); // replace the old graphics with the frame's
+
+			// placing the graphics in the root's children makes them all direct children of the root
+			// so the scene graph looks like the root, with a couple hundred direct children (tree height = 1)
+		}
+
+		// move every graphic to where its cell is at this point of the tick
+		for (int k = 0; k < visibleCount; k++) {
+			int i = visible[k];
+			double x = frame.getX(i, progress);
+			double y = frame.getY(i, progress);
+			if (frame.getShape(i) == CellShape.SQUARE) {
+				Rectangle graphic = (Rectangle) graphics.get(k);
+				graphic.setX(x - frame.getRadius(i));
+				graphic.setY(y - frame.getRadius(i));
+			} else {
+				Circle graphic = (Circle) graphics.get(k);
+				graphic.setCenterX(x);
+				graphic.setCenterY(y);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,224 @@
+package avorontsov.petridish;
+
+/**
+ * Everything a petri dish needs to know when it is created: the size of the
+ * dish, the starting population, the performance options and the seed. Also
+ * holds the agar feed factor, which a running dish can be given again at any
+ * time. Starts out with the defaults below, which the GUI starts out with
+ * too, so that only the values of interest need to be set. The limits below
+ * are the GUI's as well.
+ * 
+ * The petri dish reads the configuration once, when it is created, and keeps
+ * no reference to it.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class SimulationConfig {
+
+	public static final int DEFAULT_PETRI_DISH_WIDTH = 750;
+	public static final int DEFAULT_PETRI_DISH_HEIGHT = 750;
+	
+	public static final int MIN_PETRI_DISH_DIM = 30;
+	public static final int MAX_PETRI_DISH_DIM = 2000;
+	
+	// TODO temp values. Ideally a more robust system for this type of thing later on
+	// i.e. a specialized species data structure which will also track certain spawning/etc. hints
+	// e.g. species spawn rate; species initial population;
+	
+	// during sim
+	public static final int DEFAULT_AGAR_FEED_FACTOR = 4;
+
+	// startup sim
+	public static final int DEFAULT_AGAR_INITIAL_POP = 100;
+	public static final int DEFAULT_GRAZER_INITIAL_POP = 5;
+	public static final int DEFAULT_PRED_INITIAL_POP = 2;
+	public static final int DEFAULT_PLANT_INITIAL_POP = 12;
+	
+	// performance options
+	public static final int DEFAULT_NEIGHBOR_LIST_SKIN = 0; // 0 turns off the neighbor list cache
+	public static final int MAX_NEIGHBOR_LIST_SKIN = 50;
+	public static final int DEFAULT_TICK_THREADS = 0; // 0 runs every phase on the thread stepping the dish
+	public static final int MAX_TICK_THREADS = 64;
+	public static final int DEFAULT_SEED = 0; // 0 picks a new seed for every simulation
+
+	private int width = DEFAULT_PETRI_DISH_WIDTH;
+	private int height = DEFAULT_PETRI_DISH_HEIGHT;
+	private int agarPop = DEFAULT_AGAR_INITIAL_POP; // the starting population of each species
+	private int grazerPop = DEFAULT_GRAZER_INITIAL_POP;
+	private int predPop = DEFAULT_PRED_INITIAL_POP;
+	private int plantPop = DEFAULT_PLANT_INITIAL_POP;
+	private int agarFeedFactor = DEFAULT_AGAR_FEED_FACTOR; // up to this much agar is added every tick
+	private int neighborListSkin = DEFAULT_NEIGHBOR_LIST_SKIN; // 0 turns off the neighbor list cache
+	private int tickThreads = DEFAULT_TICK_THREADS; // 0 runs every phase on the thread stepping the dish
+	private int seed = DEFAULT_SEED; // 0 picks a new seed
+
+	/**
+	 * @return the width of the dish
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @param width the width of the dish
+	 * @throws IllegalArgumentException if the width is out of the range the
+	 *                                  GUI allows
+	 */
+	public void setWidth(int width) {
+		this.width = checkRange("width", width, MIN_PETRI_DISH_DIM, MAX_PETRI_DISH_DIM);
+	}
+
+	/**
+	 * @return the height of the dish
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @param height the height of the dish
+	 * @throws IllegalArgumentException if the height is out of the range the
+	 *                                  GUI allows
+	 */
+	public void setHeight(int height) {
+		this.height = checkRange("height", height, MIN_PETRI_DISH_DIM, MAX_PETRI_DISH_DIM);
+	}
+
+	/**
+	 * @return the number of agar cells to start with
+	 */
+	public int getAgarPop() {
+		return agarPop;
+	}
+
+	/**
+	 * @param agarPop the number of agar cells to start with
+	 */
+	public void setAgarPop(int agarPop) {
+		this.agarPop = checkRange("agar population", agarPop, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of grazers to start with
+	 */
+	public int getGrazerPop() {
+		return grazerPop;
+	}
+
+	/**
+	 * @param grazerPop the number of grazers to start with
+	 */
+	public void setGrazerPop(int grazerPop) {
+		this.grazerPop = checkRange("grazer population", grazerPop, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of predators to start with
+	 */
+	public int getPredPop() {
+		return predPop;
+	}
+
+	/**
+	 * @param predPop the number of predators to start with
+	 */
+	public void setPredPop(int predPop) {
+		this.predPop = checkRange("predator population", predPop, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of plants to start with
+	 */
+	public int getPlantPop() {
+		return plantPop;
+	}
+
+	/**
+	 * @param plantPop the number of plants to start with
+	 */
+	public void setPlantPop(int plantPop) {
+		this.plantPop = checkRange("plant population", plantPop, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the most agar cells added to the dish in one tick
+	 */
+	public int getAgarFeedFactor() {
+		return agarFeedFactor;
+	}
+
+	/**
+	 * @param agarFeedFactor the most agar cells added to the dish in one tick
+	 */
+	public void setAgarFeedFactor(int agarFeedFactor) {
+		this.agarFeedFactor = checkRange("agar feed factor", agarFeedFactor, 0, Integer.MAX_VALUE - 1);
+	}
+
+	/**
+	 * @return how far past their reach the cells' neighbor lists are gathered,
+	 *         see NeighborListCache; 0 if the cache is turned off
+	 */
+	public int getNeighborListSkin() {
+		return neighborListSkin;
+	}
+
+	/**
+	 * @param neighborListSkin how far past their reach the cells' neighbor lists
+	 *                         are gathered, see NeighborListCache; 0 turns the
+	 *                         cache off
+	 */
+	public void setNeighborListSkin(int neighborListSkin) {
+		this.neighborListSkin = checkRange("neighbor list skin", neighborListSkin, 0,
+				MAX_NEIGHBOR_LIST_SKIN);
+	}
+
+	/**
+	 * @return the number of threads the cells are updated on in phases; 0 if
+	 *         the phases run on the thread stepping the dish
+	 */
+	public int getTickThreads() {
+		return tickThreads;
+	}
+
+	/**
+	 * @param tickThreads the number of threads to update the cells on in phases;
+	 *                    0 runs the phases on the thread stepping the dish
+	 */
+	public void setTickThreads(int tickThreads) {
+		this.tickThreads = checkRange("tick threads", tickThreads, 0, MAX_TICK_THREADS);
+	}
+
+	/**
+	 * @return the seed of the dish's random stream; 0 if a new one is picked
+	 */
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed the seed of the dish's random stream; 0 picks a new one. A
+	 *             seed gives the same run for any number of tick threads
+	 */
+	public void setSeed(int seed) {
+		this.seed = checkRange("seed", seed, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Helper method to reject a value out of range.
+	 * 
+	 * @param name  what the value is, for the error message
+	 * @param value the value
+	 * @param min   the smallest value allowed
+	 * @param max   the largest value allowed
+	 * @return the value
+	 * @throws IllegalArgumentException if the value is out of range
+	 */
+	private static int checkRange(String name, int value, int min, int max) {
+		if (value < min || value > max) {
+			throw new IllegalArgumentException(
+					"The " + name + " must be between " + min + " and " + max + ", not " + value + ".");
+		}
+		return value;
+	}
+
+}
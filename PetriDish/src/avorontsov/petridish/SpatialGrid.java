@@ -0,0 +1,418 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * A hierarchical grid of square buckets laid over the petri dish, used by the
+ * PetriDish to answer its range queries without scanning every cell. The grid
+ * has several levels, each with buckets twice the size of the level below it,
+ * from a fine level suited to touch checks up to a coarse level suited to the
+ * largest vision ranges. Each cell in the dish is filed under the bucket
+ * containing its centerpoint on every level, and each query picks the finest
+ * level whose buckets are at least as large as the distance it has to reach, so
+ * that small and large queries alike only have to visit the few buckets next to
+ * the querying cell.
+ *
+ * The PetriDish keeps one grid per species, so that queries can be answered
+ * species by species. The grid must be told whenever a cell is placed in the
+ * dish, moves, or is removed from the dish; the PetriDish and Cell classes take
+ * care of this.
+ * Cells outside the bounds of the dish (e.g. squished past a wall) are filed
+ * under the nearest edge bucket, which keeps the queries exact.
+ *
+ * Query results are returned in the order the cells appear in the petri dish's
+ * list of cells, so they are identical to a scan of that list.
+ *
+ * @author Andrey Vorontsov
+ */
+public class SpatialGrid {
+
+	// sorts cells by their position in the petri dish's list of cells
+	static final Comparator<Cell> DISH_ORDER = new Comparator<Cell>() {
+		@Override
+		public int compare(Cell c1, Cell c2) {
+			return Integer.compare(c1.getDishIndex(), c2.getDishIndex());
+		}
+	};
+
+	/**
+	 * A single level of the grid, a uniform grid of square buckets. Level k has
+	 * buckets 2^k times the size of the finest level's, so the bucket containing a
+	 * location on level k can be found by halving the finest level's column and
+	 * row k times.
+	 */
+	private static class Level {
+		private final double bucketSize; // the side length of each square bucket
+		private final int shift; // the number of times the finest level's columns and rows are halved
+		private final int columns;
+		private final int rows;
+		private final ArrayList<ArrayList<Cell>> buckets; // row-major, the bucket at (column, row) is at column + row
+															// * columns
+
+		private Level(double bucketSize, int shift, int columns, int rows) {
+			this.bucketSize = bucketSize;
+			this.shift = shift;
+			this.columns = columns;
+			this.rows = rows;
+
+			buckets = new ArrayList<ArrayList<Cell>>(columns * rows);
+			for (int i = 0; i < columns * rows; i++) {
+				buckets.add(new ArrayList<Cell>());
+			}
+		}
+
+		/**
+		 * @param x an x coordinate, possibly out of bounds
+		 * @return the column containing that coordinate, clamped to the level
+		 */
+		private int columnAt(double x) {
+			return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / bucketSize)));
+		}
+
+		/**
+		 * @param y a y coordinate, possibly out of bounds
+		 * @return the row containing that coordinate, clamped to the level
+		 */
+		private int rowAt(double y) {
+			return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / bucketSize)));
+		}
+	}
+
+	private final Level[] levels; // from the finest to the coarsest
+	private final int finestColumns; // used to take apart the finest bucket index each cell keeps
+
+	private int maxRadius = 0; // the largest radius of any cell seen by the grid, bounds the touching query
+
+	/**
+	 * Creates an empty grid covering a petri dish of the given dimensions.
+	 *
+	 * @param width              the width of the petri dish
+	 * @param height             the height of the petri dish
+	 * @param finestBucketSize   the side length of each bucket on the finest
+	 *                           level; ideally around the distance of a touch
+	 *                           check
+	 * @param coarsestBucketSize the smallest side length the coarsest level's
+	 *                           buckets may have; ideally around the largest
+	 *                           vision range in the dish
+	 * @throws IllegalArgumentException if the finest bucket size is not positive
+	 */
+	public SpatialGrid(int width, int height, double finestBucketSize, double coarsestBucketSize) {
+		if (finestBucketSize <= 0)
+			throw new IllegalArgumentException(
+					"Cannot instantiate a SpatialGrid with a bucket size of " + finestBucketSize + ".");
+
+		// keep doubling the bucket size until the coarsest level is big enough
+		int levelCount = 1;
+		while (finestBucketSize * (1 << (levelCount - 1)) < coarsestBucketSize) {
+			levelCount++;
+		}
+
+		finestColumns = Math.max(1, (int) Math.ceil(width / finestBucketSize));
+		int finestRows = Math.max(1, (int) Math.ceil(height / finestBucketSize));
+
+		// each coarser level has half as many columns and rows, rounded up, so that
+		// halving a column or row of the finest level always lands inside the level
+		levels = new Level[levelCount];
+		for (int k = 0; k < levelCount; k++) {
+			levels[k] = new Level(finestBucketSize * (1 << k), k, (finestColumns + (1 << k) - 1) >> k,
+					(finestRows + (1 << k) - 1) >> k);
+		}
+	}
+
+	/**
+	 * Files a cell into the grid. The cell should not already be in the grid.
+	 *
+	 * @param c the cell to add
+	 */
+	public void insert(Cell c) {
+		Level finest = levels[0];
+		int column = finest.columnAt(c.getX());
+		int row = finest.rowAt(c.getY());
+		for (Level level : levels) {
+			level.buckets.get(bucketOn(level, column, row)).add(c);
+		}
+		c.setGridBucket(column + row * finestColumns);
+		maxRadius = Math.max(maxRadius, c.getRadius());
+	}
+
+	/**
+	 * Removes a cell from the grid. Does nothing if the cell is not in the grid.
+	 *
+	 * @param c the cell to remove
+	 */
+	public void remove(Cell c) {
+		if (c.getGridBucket() == -1) {
+			return;
+		}
+		int column = c.getGridBucket() % finestColumns;
+		int row = c.getGridBucket() / finestColumns;
+		for (Level level : levels) {
+			level.buckets.get(bucketOn(level, column, row)).remove(c);
+		}
+		c.setGridBucket(-1);
+	}
+
+	/**
+	 * Refiles a cell after it has moved or changed size. Does nothing if the cell
+	 * is not in the grid (e.g. a newborn which has not been placed in the dish
+	 * yet).
+	 *
+	 * @param c the cell that changed
+	 */
+	public void update(Cell c) {
+		if (c.getGridBucket() == -1) {
+			return;
+		}
+		maxRadius = Math.max(maxRadius, c.getRadius());
+
+		Level finest = levels[0];
+		int bucket = finest.columnAt(c.getX()) + finest.rowAt(c.getY()) * finestColumns;
+		if (bucket == c.getGridBucket()) {
+			return; // still in the same finest bucket, so in the same bucket on every level
+		}
+
+		int oldColumn = c.getGridBucket() % finestColumns;
+		int oldRow = c.getGridBucket() / finestColumns;
+		int newColumn = bucket % finestColumns;
+		int newRow = bucket / finestColumns;
+		for (Level level : levels) {
+			int oldBucket = bucketOn(level, oldColumn, oldRow);
+			int newBucket = bucketOn(level, newColumn, newRow);
+			if (oldBucket == newBucket) {
+				break; // the buckets only get bigger from here, so it stays put on the coarser levels too
+			}
+			level.buckets.get(oldBucket).remove(c);
+			level.buckets.get(newBucket).add(c);
+		}
+		c.setGridBucket(bucket);
+	}
+
+	/**
+	 * Finds all the living cells, other than the querying cell, whose centerpoints
+	 * are closer than the max distance to the querying cell's centerpoint.
+	 *
+	 * @param me          the querying cell
+	 * @param maxDistance the distance to search within
+	 * @return a list of cells in the range
+	 */
+	public ArrayList<Cell> getCellsInRange(Cell me, double maxDistance) {
+		ArrayList<Cell> visibleCells = new ArrayList<Cell>();
+
+		Level level = levelFor(maxDistance);
+		int minColumn = level.columnAt(me.getX() - maxDistance);
+		int maxColumn = level.columnAt(me.getX() + maxDistance);
+		int minRow = level.rowAt(me.getY() - maxDistance);
+		int maxRow = level.rowAt(me.getY() + maxDistance);
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				ArrayList<Cell> bucket = level.buckets.get(column + row * level.columns);
+				for (int i = 0; i < bucket.size(); i++) {
+					Cell curr = bucket.get(i);
+					if (PetriDish.distanceBetween(curr.getX(), curr.getY(), me.getX(), me.getY()) < maxDistance
+							&& curr.isAlive() && !curr.equals(me)) {
+						visibleCells.add(curr);
+					}
+				}
+			}
+		}
+
+		visibleCells.sort(DISH_ORDER); // restore the order of the petri dish's list of cells
+		return visibleCells;
+	}
+
+	/**
+	 * Finds all the living cells, other than the querying cell, whose circles
+	 * overlap the querying cell's circle.
+	 *
+	 * @param me the querying cell
+	 * @return a list of cells touching this cell
+	 */
+	public ArrayList<Cell> getTouchingCells(Cell me) {
+		ArrayList<Cell> touchedCells = new ArrayList<Cell>();
+
+		// no cell can touch me from further away than my radius plus the largest radius around
+		double reach = me.getRadius() + maxRadius;
+
+		Level level = levelFor(reach);
+		int minColumn = level.columnAt(me.getX() - reach);
+		int maxColumn = level.columnAt(me.getX() + reach);
+		int minRow = level.rowAt(me.getY() - reach);
+		int maxRow = level.rowAt(me.getY() + reach);
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				ArrayList<Cell> bucket = level.buckets.get(column + row * level.columns);
+				for (int i = 0; i < bucket.size(); i++) {
+					Cell curr = bucket.get(i);
+					if (PetriDish.distanceBetween(curr.getX(), curr.getY(), me.getX(), me.getY()) < me.getRadius()
+							+ curr.getRadius() && curr.isAlive() && !curr.equals(me)) {
+						touchedCells.add(curr);
+					}
+				}
+			}
+		}
+
+		touchedCells.sort(DISH_ORDER); // restore the order of the petri dish's list of cells
+		return touchedCells;
+	}
+
+	/**
+	 * Gathers both the cells visible to the querying cell and the cells touching
+	 * it in a single pass over the nearby buckets. The conditions are the same as
+	 * in getCellsInRange() and getTouchingCells(), but squared distances are
+	 * compared to avoid taking a square root for every candidate.
+	 *
+	 * @param me           the querying cell
+	 * @param visionRange  the distance within which cells are visible
+	 * @param visibleCells the list to add the visible cells to
+	 * @param touchedCells the list to add the touching cells to
+	 */
+	public void getNeighborhood(Cell me, double visionRange, ArrayList<Cell> visibleCells,
+			ArrayList<Cell> touchedCells) {
+		double visionRangeSquared = visionRange * visionRange;
+
+		// the search has to reach far enough for both views
+		double reach = Math.max(visionRange, me.getRadius() + maxRadius);
+
+		Level level = levelFor(reach);
+		int minColumn = level.columnAt(me.getX() - reach);
+		int maxColumn = level.columnAt(me.getX() + reach);
+		int minRow = level.rowAt(me.getY() - reach);
+		int maxRow = level.rowAt(me.getY() + reach);
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				ArrayList<Cell> bucket = level.buckets.get(column + row * level.columns);
+				for (int i = 0; i < bucket.size(); i++) {
+					Cell curr = bucket.get(i);
+					if (!curr.isAlive() || curr.equals(me)) {
+						continue;
+					}
+					double distanceSquared = PetriDish.squaredDistanceBetween(curr.getX(), curr.getY(), me.getX(),
+							me.getY());
+					if (distanceSquared < visionRangeSquared) {
+						visibleCells.add(curr);
+					}
+					double touchingDistance = me.getRadius() + curr.getRadius();
+					if (distanceSquared < touchingDistance * touchingDistance) {
+						touchedCells.add(curr);
+					}
+				}
+			}
+		}
+
+		// restore the order of the petri dish's list of cells
+		visibleCells.sort(DISH_ORDER);
+		touchedCells.sort(DISH_ORDER);
+	}
+
+	/**
+	 * Finds the closest cell visible to the querying cell which matches a
+	 * behavior's targeting specifications. Buckets are searched in rings of
+	 * increasing size around the querying cell's bucket, and the search stops as
+	 * soon as no unsearched bucket could hold a closer (or equally close) match,
+	 * or once the rings leave the vision range. Ties are broken in favor of the
+	 * cell that comes first in the petri dish's list of cells, as a scan of that
+	 * list would.
+	 *
+	 * @param me          the querying cell
+	 * @param visionRange the distance within which cells are visible
+	 * @param behavior    the behavior whose targeting specifications must be met
+	 * @return the closest matching cell, or null if there is none
+	 */
+	public Cell findNearest(Cell me, double visionRange, Behavior behavior) {
+		double visionRangeSquared = visionRange * visionRange;
+		double searchRange = Math.min(visionRange, behavior.getTargetCellMaxDistance()); // no match lies beyond this
+
+		Cell target = null;
+		double distanceToTarget = Double.MAX_VALUE;
+
+		// buckets about half the search range across let a close match cut the search short
+		Level level = levelFor(searchRange / 2);
+		int centerColumn = level.columnAt(me.getX());
+		int centerRow = level.rowAt(me.getY());
+		int lastRing = Math.max(Math.max(centerColumn, level.columns - 1 - centerColumn),
+				Math.max(centerRow, level.rows - 1 - centerRow)); // beyond this ring the grid ends
+
+		for (int ring = 0; ring <= lastRing; ring++) {
+
+			// every cell in this ring is at least (ring - 1) buckets away, since the
+			// querying cell sits somewhere within the center bucket
+			double ringDistance = (ring - 1) * level.bucketSize;
+			if (ringDistance > distanceToTarget || ringDistance > searchRange) {
+				break; // nothing closer can be found from here on
+			}
+
+			for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+				if (row < 0 || row >= level.rows) {
+					continue;
+				}
+				// the top and bottom rows of the ring are whole, the rest only have their ends
+				boolean wholeRow = row == centerRow - ring || row == centerRow + ring;
+				int columnStep = wholeRow ? 1 : Math.max(1, 2 * ring);
+
+				for (int column = centerColumn - ring; column <= centerColumn + ring; column += columnStep) {
+					if (column < 0 || column >= level.columns) {
+						continue;
+					}
+					ArrayList<Cell> bucket = level.buckets.get(column + row * level.columns);
+					for (int i = 0; i < bucket.size(); i++) {
+						Cell curr = bucket.get(i);
+						if (!curr.isAlive() || curr.equals(me) || PetriDish.squaredDistanceBetween(curr.getX(),
+								curr.getY(), me.getX(), me.getY()) >= visionRangeSquared) {
+							continue; // not visible
+						}
+						double distanceToCell = PetriDish.distanceBetween(curr.getX(), curr.getY(), me.getX(),
+								me.getY());
+						if ((distanceToCell < distanceToTarget || (distanceToCell == distanceToTarget
+								&& curr.getDishIndex() < target.getDishIndex()))
+								&& behavior.isMatchingTarget(me, curr, distanceToCell)) {
+							target = curr;
+							distanceToTarget = distanceToCell;
+						}
+					}
+				}
+			}
+		}
+
+		return target;
+	}
+
+	/**
+	 * @param reach the distance a query has to reach from the querying cell
+	 * @return the finest level whose buckets are at least that large, or the
+	 *         coarsest level if none are
+	 */
+	private Level levelFor(double reach) {
+		for (Level level : levels) {
+			if (level.bucketSize >= reach) {
+				return level;
+			}
+		}
+		return levels[levels.length - 1];
+	}
+
+	/**
+	 * @param level  a level of the grid
+	 * @param column a column of the finest level
+	 * @param row    a row of the finest level
+	 * @return the index of the bucket on the given level containing that bucket of
+	 *         the finest level
+	 */
+	private static int bucketOn(Level level, int column, int row) {
+		return (column >> level.shift) + (row >> level.shift) * level.columns;
+	}
+
+	/**
+	 * @return the largest radius of any cell the grid has seen (cells may have
+	 *         shrunk or left since)
+	 */
+	public int getMaxRadius() {
+		return maxRadius;
+	}
+
+}
@@ -0,0 +1,62 @@
+package avorontsov.petridish;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Assigns every species name a small int ID, handed out densely from 0 in the
+ * order the species are first seen. Cells and behaviors look their species up
+ * once, and from then on the simulation compares and indexes species by ID
+ * instead of comparing Strings.
+ * 
+ * The registry is shared by every petri dish, so an ID means the same species
+ * everywhere.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class SpeciesRegistry {
+
+	private static final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private static final ArrayList<String> names = new ArrayList<String>(); // indexed by ID
+
+	private SpeciesRegistry() {
+		// not instantiable
+	}
+
+	/**
+	 * Looks up the ID of a species, assigning the next free ID if the species has
+	 * not been seen before.
+	 * 
+	 * @param species the name of the species, e.g. "Grazer"
+	 * @return the ID of the species
+	 * @throws IllegalArgumentException if the species is null
+	 */
+	public static synchronized int idOf(String species) {
+		if (species == null)
+			throw new IllegalArgumentException("Cannot look up the ID of a null species.");
+
+		Integer id = ids.get(species);
+		if (id == null) {
+			id = names.size();
+			ids.put(species, id);
+			names.add(species);
+		}
+		return id;
+	}
+
+	/**
+	 * @param id the ID of a species
+	 * @return the name of that species
+	 */
+	public static synchronized String nameOf(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * @return the number of species seen so far; every ID is less than this
+	 */
+	public static synchronized int size() {
+		return names.size();
+	}
+
+}
@@ -0,0 +1,126 @@
+package avorontsov.petridish;
+
+import java.util.Random;
+
+/**
+ * A fast random stream which can be split into new, independent streams. It
+ * uses the same algorithm as java.util.SplittableRandom (SplitMix64), but is a
+ * java.util.Random, so it can be used anywhere one is expected.
+ *
+ * Unlike a plain Random, a SplitRandom is not safe to share between threads.
+ * Instead, every cell gets its own stream, split off the stream of whatever
+ * created it: cells placed by the petri dish split theirs off the dish's
+ * stream, and offspring split theirs off their parent's. Each cell only ever
+ * draws from its own stream, so the numbers it sees depend only on the seed of
+ * the simulation and never on the order the cells were updated in, or on which
+ * thread updated them.
+ *
+ * Together with the petri dish's phased tick, which lets no cell see another's
+ * changes until the phase is over, this makes a seed repeat the same
+ * simulation for any number of tick threads, 0 included.
+ *
+ * @author Andrey Vorontsov
+ */
+public class SplitRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L; // the gamma of a stream made from a seed
+
+	private long seed; // the state of the stream, advanced by the gamma on every draw
+	private final long gamma; // odd, and different for every stream split off
+
+	/**
+	 * Creates a new stream from a seed. Two streams created from the same seed
+	 * produce the same numbers.
+	 *
+	 * @param seed the seed
+	 */
+	public SplitRandom(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Helper constructor for a stream with a particular gamma.
+	 */
+	private SplitRandom(long seed, long gamma) {
+		super(0); // the state of the plain Random isn't used
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Splits off a new stream, which from then on produces numbers independently
+	 * of this one. Advances this stream.
+	 *
+	 * @return the new stream
+	 */
+	public SplitRandom split() {
+		return new SplitRandom(nextLong(), mixGamma(nextSeed()));
+	}
+
+	/**
+	 * Splits a new stream off any Random. A SplitRandom is split as usual, while a
+	 * plain Random just seeds the new stream.
+	 *
+	 * @param source the Random to split the new stream off
+	 * @return the new stream
+	 */
+	public static SplitRandom split(Random source) {
+		if (source instanceof SplitRandom) {
+			return ((SplitRandom) source).split();
+		}
+		return new SplitRandom(source.nextLong());
+	}
+
+	/**
+	 * Restarts the stream from the given seed.
+	 */
+	@Override
+	public void setSeed(long seed) {
+		this.seed = seed; // also called by the Random constructor, before the real seed is set
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	/**
+	 * Every other method of Random draws its numbers from here.
+	 */
+	@Override
+	protected int next(int bits) {
+		return (int) (mix64(nextSeed()) >>> (64 - bits));
+	}
+
+	/**
+	 * Helper method to advance the state of the stream.
+	 */
+	private long nextSeed() {
+		return seed += gamma;
+	}
+
+	/**
+	 * Helper method to scramble the bits of a state into a random number.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Helper method to turn a state into the gamma of a new stream. The gamma has
+	 * to be odd, and is kept from having too few bit flips, which makes for poor
+	 * streams.
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int flips = Long.bitCount(z ^ (z >>> 1));
+		return (flips < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+
+}
@@ -0,0 +1,208 @@
+package avorontsov.petridish;
+
+import avorontsov.cells.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Holds what the cells mean to do to each other during a single tick, when the
+ * petri dish has them act in parallel. Eating, nibbling and pushing all change
+ * some other cell, possibly one being updated on another thread at the same
+ * time, so instead of being carried out on the spot they are written down here
+ * and carried out afterwards on the simulation thread.
+ *
+ * Each cell has its own entries, found by its place in the petri dish's list of
+ * cells, so cells never write to the same place and need no locks. Carrying
+ * the intents out is done in the order of the list of cells, and contests are
+ * settled by fixed rules, so the outcome doesn't depend on which thread got
+ * where first:
+ *
+ * 1. Meals are settled heaviest eater first (among equally heavy eaters, the
+ * first in the list of cells goes first). Each eater gets its target unless
+ * the target was already taken by another eater, or is itself eating, or the
+ * eater itself was already taken. So of all the cells trying to eat the same
+ * target, exactly one gets it, as long as any of them is free to: the
+ * heaviest of those that are not being eaten themselves.
+ *
+ * 2. A cell which is being eaten is too busy to eat or nibble on anything
+ * itself, and a cell which eats can't be eaten in the same tick.
+ *
+ * 3. Cells which are no longer alive neither eat nor get eaten.
+ *
+ * 4. The cells a cell means to push away were found while sensing, before
+ * anybody moved. When the push is carried out, only those still touching the
+ * pusher (and still alive) are pushed.
+ *
+ * @author Andrey Vorontsov
+ */
+public class TickIntents {
+
+	private Cell[] actors = new Cell[0]; // by place in the list of cells
+	private Cell[] mealTargets = new Cell[0]; // what each cell means to eat or nibble on, null for nothing
+	private boolean[] nibbles = new boolean[0]; // true if the cell only means to nibble on its target
+	private ArrayList<ArrayList<Cell>> squishes = new ArrayList<ArrayList<Cell>>(); // what each cell means to push
+																					// away, null for nothing
+	private int[] winners = new int[0]; // by the target's place in the list of cells, the place of the cell which
+										// gets to eat it, -1 for none
+	private boolean[] eating = new boolean[0]; // by place in the list of cells, true if the cell won a meal
+	private int[] eaters = new int[0]; // the place of every cell meaning to eat, heaviest first
+	private int[] mergeScratch = new int[0]; // used while sorting the eaters
+	private final ArrayList<Cell> stillTouching = new ArrayList<Cell>(); // used while carrying out each push
+	private int cellCount = 0;
+
+	/**
+	 * Throws out all intents, and makes room for a new tick's worth.
+	 *
+	 * @param cellCount the number of cells which may act this tick
+	 */
+	public void reset(int cellCount) {
+		if (actors.length < cellCount) {
+			int capacity = Math.max(cellCount, actors.length * 2);
+			actors = new Cell[capacity];
+			mealTargets = new Cell[capacity];
+			nibbles = new boolean[capacity];
+			winners = new int[capacity];
+			eating = new boolean[capacity];
+			eaters = new int[capacity];
+			mergeScratch = new int[capacity];
+		}
+		Arrays.fill(actors, 0, this.cellCount, null); // let dead cells be collected
+		Arrays.fill(mealTargets, 0, Math.max(this.cellCount, cellCount), null);
+		Arrays.fill(winners, 0, cellCount, -1);
+		Arrays.fill(eating, 0, cellCount, false);
+		while (squishes.size() < cellCount) {
+			squishes.add(null);
+		}
+		for (int i = 0; i < squishes.size(); i++) {
+			squishes.set(i, null);
+		}
+		this.cellCount = cellCount;
+	}
+
+	/**
+	 * Writes down that a cell means to eat or nibble on another.
+	 *
+	 * @param eater  the cell doing the eating
+	 * @param target the cell to be eaten
+	 * @param nibble true if the eater only means to nibble on the target
+	 */
+	public void meal(Cell eater, Cell target, boolean nibble) {
+		int i = eater.getDishIndex();
+		actors[i] = eater;
+		mealTargets[i] = target;
+		nibbles[i] = nibble;
+	}
+
+	/**
+	 * Writes down that a cell means to push away the cells it is touching.
+	 *
+	 * @param pusher       the cell doing the pushing
+	 * @param touchedCells the cells it is touching, left alone until the push is
+	 *                     carried out
+	 */
+	public void squish(Cell pusher, ArrayList<Cell> touchedCells) {
+		int i = pusher.getDishIndex();
+		actors[i] = pusher;
+		squishes.set(i, touchedCells);
+	}
+
+	/**
+	 * Settles who eats what, then carries out every meal and nibble.
+	 */
+	public void resolveMeals() {
+		// first, who eats what, heaviest eater first
+		int eaterCount = 0;
+		for (int i = 0; i < cellCount; i++) {
+			Cell target = mealTargets[i];
+			if (target != null && !nibbles[i] && actors[i].isAlive() && target.isAlive()) {
+				eaters[eaterCount++] = i;
+			}
+		}
+		sortHeaviestFirst(eaterCount);
+		for (int k = 0; k < eaterCount; k++) {
+			int i = eaters[k];
+			int t = mealTargets[i].getDishIndex();
+			if (winners[i] == -1 && winners[t] == -1 && !eating[t]) { // free to eat, and the target is up for grabs
+				winners[t] = i;
+				eating[i] = true;
+			}
+		}
+
+		// then the meals themselves
+		for (int i = 0; i < cellCount; i++) {
+			Cell target = mealTargets[i];
+			if (target == null || winners[i] != -1) {
+				continue; // nothing to eat, or being eaten
+			}
+			Cell eater = actors[i];
+			if (!eater.isAlive() || !target.isAlive()) {
+				continue;
+			}
+			if (nibbles[i]) {
+				eater.nibble(target);
+			} else if (winners[target.getDishIndex()] == i) {
+				eater.eat(target);
+			}
+		}
+	}
+
+	/**
+	 * Helper method to sort the first few eaters from heaviest to lightest. The
+	 * sort is a merge sort, which is stable, so equally heavy eaters stay in the
+	 * order of the list of cells.
+	 *
+	 * @param eaterCount the number of eaters to sort
+	 */
+	private void sortHeaviestFirst(int eaterCount) {
+		int[] from = eaters;
+		int[] to = mergeScratch;
+		for (int width = 1; width < eaterCount; width *= 2) {
+			for (int start = 0; start < eaterCount; start += 2 * width) {
+				int middle = Math.min(start + width, eaterCount);
+				int end = Math.min(start + 2 * width, eaterCount);
+				int a = start;
+				int b = middle;
+				for (int k = start; k < end; k++) {
+					if (a < middle && (b >= end || actors[from[a]].getMass() >= actors[from[b]].getMass())) {
+						to[k] = from[a++];
+					} else {
+						to[k] = from[b++];
+					}
+				}
+			}
+			int[] swap = from; // the merged runs become the input of the next pass
+			from = to;
+			to = swap;
+		}
+		if (from != eaters) {
+			System.arraycopy(from, 0, eaters, 0, eaterCount);
+		}
+	}
+
+	/**
+	 * Carries out every push, against the cells which still touch the pusher.
+	 */
+	public void resolveSquishes() {
+		for (int i = 0; i < cellCount; i++) {
+			ArrayList<Cell> touchedCells = squishes.get(i);
+			if (touchedCells == null || !actors[i].isAlive()) {
+				continue;
+			}
+			Cell pusher = actors[i];
+			stillTouching.clear();
+			for (int k = 0; k < touchedCells.size(); k++) {
+				Cell c = touchedCells.get(k);
+				double touchingDistance = pusher.getRadius() + c.getRadius();
+				if (c.isAlive() && PetriDish.squaredDistanceBetween(pusher.getX(), pusher.getY(), c.getX(),
+						c.getY()) < touchingDistance * touchingDistance) {
+					stillTouching.add(c);
+				}
+			}
+			if (!stillTouching.isEmpty()) {
+				pusher.squish(stillTouching);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+package avorontsov.petridish;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects (e.g. frames) from one thread which produces them to another
+ * which consumes them, without either thread ever waiting on the other. There
+ * are three objects: the producer fills in the back one, the consumer reads
+ * the front one, and the one in the middle is the newest that was finished.
+ *
+ * When the producer finishes the back object it publishes it, trading it for
+ * the middle one, which it fills in next. When the consumer wants something
+ * new it pulls, trading its front object for the middle one if that was
+ * published since it last looked. Both trades are a single atomic swap, so
+ * neither side ever blocks, and each side always has an object of its own to
+ * work with. Objects published faster than the consumer pulls them are simply
+ * overwritten, so the consumer always gets the newest.
+ *
+ * Only one thread may produce and only one may consume.
+ *
+ * @author Andrey Vorontsov
+ * @param <T> the type of object handed over
+ */
+public class TripleBuffer<T> {
+
+	private static final int INDEX_MASK = 3; // the index of the middle object, in the low bits of middle
+	private static final int FRESH = 4; // set in middle when the middle object was published but not pulled
+
+	private final Object[] objects = new Object[3];
+	private final AtomicInteger middle = new AtomicInteger(1); // the only state shared between the two threads
+	private int back = 0; // only touched by the producer
+	private int front = 2; // only touched by the consumer
+
+	/**
+	 * Creates a triple buffer out of three objects to hand back and forth. They
+	 * must be distinct, since each may be worked on by a different thread.
+	 *
+	 * @param a an object, initially the producer's
+	 * @param b an object, initially in the middle
+	 * @param c an object, initially the consumer's
+	 * @throws IllegalArgumentException if any of the objects is null, or if two
+	 *                                  of them are the same
+	 */
+	public TripleBuffer(T a, T b, T c) {
+		if (a == null || b == null || c == null || a == b || b == c || a == c)
+			throw new IllegalArgumentException("Cannot instantiate a TripleBuffer with missing or shared objects.");
+
+		objects[0] = a;
+		objects[1] = b;
+		objects[2] = c;
+	}
+
+	/**
+	 * Only to be used by the producer.
+	 *
+	 * @return the object to fill in next, which no other thread is using
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBack() {
+		return (T) objects[back];
+	}
+
+	/**
+	 * Only to be used by the producer. Publishes the back object as the newest,
+	 * and takes over another to fill in next.
+	 *
+	 * @return true only if the object published before was never pulled, and so
+	 *         was dropped
+	 */
+	public boolean publish() {
+		int old = middle.getAndSet(back | FRESH);
+		back = old & INDEX_MASK;
+		return (old & FRESH) != 0;
+	}
+
+	/**
+	 * Only to be used by the consumer. Takes over the newest published object, if
+	 * there is one the consumer hasn't had yet.
+	 *
+	 * @return the newest object, now the consumer's until the next pull, or null
+	 *         if nothing was published since the last pull
+	 */
+	@SuppressWarnings("unchecked")
+	public T pull() {
+		if ((middle.get() & FRESH) == 0) {
+			return null; // nothing new, and only the consumer ever clears the flag
+		}
+		front = middle.getAndSet(front) & INDEX_MASK;
+		return (T) objects[front];
+	}
+
+}
@@ -0,0 +1,173 @@
+package avorontsov.petridish;
+
+/**
+ * The part of the petri dish shown in the simulation window, and how far it is
+ * zoomed in. The window is a fixed number of pixels across, and shows the dish
+ * from a given point (its top left corner) at a given scale, in pixels per unit
+ * of the dish. Only used on the GUI thread.
+ * 
+ * The viewport never shows anything outside the dish, unless the whole dish is
+ * smaller than the window, in which case the dish is kept at the top left.
+ * Every change bumps a version number, so that renderers can tell when they
+ * have to redraw even though no new frame came in.
+ * 
+ * @author Andrey Vorontsov
+ */
+public class Viewport {
+
+	// the furthest the viewport zooms in, in pixels per unit of the dish
+	public static final double MAX_SCALE = 16;
+
+	private final int dishWidth;
+	private final int dishHeight;
+	private final int windowWidth;
+	private final int windowHeight;
+	private final double minScale; // the whole dish fits in the window, or 1:1 if it already did
+	private double scale = 1;
+	private double left = 0; // the point of the dish shown at the top left corner of the window
+	private double top = 0;
+	private long version = 0;
+
+	/**
+	 * Creates a viewport showing the top left corner of the dish at 1:1.
+	 * 
+	 * @param dishWidth    the width of the petri dish
+	 * @param dishHeight   the height of the petri dish
+	 * @param windowWidth  the width of the simulation window, in pixels
+	 * @param windowHeight the height of the simulation window, in pixels
+	 */
+	public Viewport(int dishWidth, int dishHeight, int windowWidth, int windowHeight) {
+		this.dishWidth = dishWidth;
+		this.dishHeight = dishHeight;
+		this.windowWidth = windowWidth;
+		this.windowHeight = windowHeight;
+		minScale = Math.min(1, Math.min((double) windowWidth / dishWidth, (double) windowHeight / dishHeight));
+	}
+
+	/**
+	 * Zooms in or out, keeping the point of the dish under the given pixel where
+	 * it is.
+	 * 
+	 * @param factor  how many times further to zoom in (less than 1 to zoom out)
+	 * @param screenX the x position of the pixel to zoom around
+	 * @param screenY the y position of the pixel to zoom around
+	 */
+	public void zoom(double factor, double screenX, double screenY) {
+		double pivotX = toDishX(screenX);
+		double pivotY = toDishY(screenY);
+		scale = Math.min(MAX_SCALE, Math.max(minScale, scale * factor));
+		left = pivotX - screenX / scale;
+		top = pivotY - screenY / scale;
+		clamp();
+	}
+
+	/**
+	 * Moves the view along with a drag of the mouse.
+	 * 
+	 * @param screenDX how many pixels the mouse moved right
+	 * @param screenDY how many pixels the mouse moved down
+	 */
+	public void pan(double screenDX, double screenDY) {
+		left -= screenDX / scale;
+		top -= screenDY / scale;
+		clamp();
+	}
+
+	/**
+	 * Helper method to keep the view inside the dish.
+	 */
+	private void clamp() {
+		left = Math.max(0, Math.min(left, dishWidth - windowWidth / scale));
+		top = Math.max(0, Math.min(top, dishHeight - windowHeight / scale));
+		version++;
+	}
+
+	/**
+	 * @param x an x position in the dish
+	 * @return the x position of that point in the window, in pixels
+	 */
+	public double toScreenX(double x) {
+		return (x - left) * scale;
+	}
+
+	/**
+	 * @param y a y position in the dish
+	 * @return the y position of that point in the window, in pixels
+	 */
+	public double toScreenY(double y) {
+		return (y - top) * scale;
+	}
+
+	/**
+	 * @param screenX an x position in the window, in pixels
+	 * @return the x position of that point in the dish
+	 */
+	public double toDishX(double screenX) {
+		return left + screenX / scale;
+	}
+
+	/**
+	 * @param screenY a y position in the window, in pixels
+	 * @return the y position of that point in the dish
+	 */
+	public double toDishY(double screenY) {
+		return top + screenY / scale;
+	}
+
+	/**
+	 * @return the scale of the view, in pixels per unit of the dish
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	/**
+	 * @return the leftmost x position of the dish in view
+	 */
+	public double getLeft() {
+		return left;
+	}
+
+	/**
+	 * @return the topmost y position of the dish in view
+	 */
+	public double getTop() {
+		return top;
+	}
+
+	/**
+	 * @return the rightmost x position of the dish in view
+	 */
+	public double getRight() {
+		return toDishX(windowWidth);
+	}
+
+	/**
+	 * @return the bottommost y position of the dish in view
+	 */
+	public double getBottom() {
+		return toDishY(windowHeight);
+	}
+
+	/**
+	 * @return the width of the simulation window, in pixels
+	 */
+	public int getWindowWidth() {
+		return windowWidth;
+	}
+
+	/**
+	 * @return the height of the simulation window, in pixels
+	 */
+	public int getWindowHeight() {
+		return windowHeight;
+	}
+
+	/**
+	 * @return a number which changes whenever the view does
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+}